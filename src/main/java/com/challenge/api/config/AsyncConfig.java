@@ -0,0 +1,51 @@
+package com.challenge.api.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+@Configuration
+public class AsyncConfig implements AsyncConfigurer {
+    private final ObjectProvider<BoundedTaskExecutor> asyncExecutor;
+
+    public AsyncConfig(@Qualifier("asyncExecutor") ObjectProvider<BoundedTaskExecutor> asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    @Bean(name = "asyncExecutor", destroyMethod = "shutdown")
+    public BoundedTaskExecutor asyncExecutor(MeterRegistry meterRegistry,
+                                             @Value("${async.threads:platform}") String threads,
+                                             @Value("${async.pool-size:8}") int poolSize,
+                                             @Value("${async.queue-capacity:1000}") int queueCapacity,
+                                             @Value("${async.rejection-policy:caller-runs}") String rejectionPolicy) {
+        return new BoundedTaskExecutor("async",
+                BoundedTaskExecutor.Threads.valueOf(constant(threads)),
+                poolSize,
+                queueCapacity,
+                BoundedTaskExecutor.RejectionPolicy.valueOf(constant(rejectionPolicy)),
+                meterRegistry);
+    }
+
+    // Used by @Async methods
+    @Override
+    public Executor getAsyncExecutor() {
+        return asyncExecutor.getObject();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> asyncExecutor.getObject().failed(ex);
+    }
+
+    private static String constant(String value) {
+        return value.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+    }
+}
@@ -0,0 +1,94 @@
+package com.challenge.api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs at most poolSize tasks at once and queues at most queueCapacity more. Once the queue is full, new tasks
+ * either run on the submitting thread, slowing the producer down, or are rejected.
+ * Task failures are logged and counted instead of being lost with the worker thread.
+ */
+@Slf4j
+public class BoundedTaskExecutor implements AsyncTaskExecutor {
+    public enum Threads {
+        PLATFORM, VIRTUAL
+    }
+
+    public enum RejectionPolicy {
+        CALLER_RUNS, ABORT
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService timedPool;
+    private final Counter failures;
+
+    public BoundedTaskExecutor(String name, Threads threads, int poolSize, int queueCapacity,
+                               RejectionPolicy rejectionPolicy, MeterRegistry meterRegistry) {
+        if (poolSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Pool size and queue capacity must be greater than or equal to 1");
+        }
+
+        // Virtual threads are cheap to start, with them the pool only bounds how many tasks run at once
+        ThreadFactory threadFactory = threads == Threads.VIRTUAL
+                ? Thread.ofVirtual().name(name + "-", 0).factory()
+                : Thread.ofPlatform().name(name + "-", 0).factory();
+
+        RejectedExecutionHandler policy = rejectionPolicy == RejectionPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy();
+        Counter rejected = meterRegistry.counter("executor.tasks.rejected", "name", name,
+                "policy", rejectionPolicy.name().toLowerCase(Locale.ROOT));
+
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, (task, executor) -> {
+                    rejected.increment();
+                    policy.rejectedExecution(task, executor);
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+
+        // Registers executor.active, executor.queued and the executor (run time) and executor.idle (queue time)
+        // timers, tagged with the name like the counters below
+        this.timedPool = ExecutorServiceMetrics.monitor(meterRegistry, pool, name);
+        this.failures = meterRegistry.counter("executor.tasks.failed", "name", name);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            timedPool.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException | Error e) {
+                    failed(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new TaskRejectedException("Async queue is full, task rejected", e);
+        }
+    }
+
+    public void failed(Throwable e) {
+        failures.increment();
+        log.error("Async task failed", e);
+    }
+
+    public void shutdown() throws InterruptedException {
+        pool.shutdown();
+        if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+            pool.shutdownNow();
+        }
+    }
+}
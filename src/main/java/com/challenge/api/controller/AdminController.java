@@ -0,0 +1,107 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dto.APIErrorResponse;
+import com.challenge.api.model.dto.ArchiveStatus;
+import com.challenge.api.model.dto.Contention;
+import com.challenge.api.services.ArchiveService;
+import com.challenge.api.services.ConflictRetryService;
+import com.challenge.api.services.StockBucketService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    private final ArchiveService archiveService;
+    private final StockBucketService stockBucketService;
+    private final ConflictRetryService conflictRetryService;
+
+    @Autowired
+    AdminController(@Qualifier("archiveService") ArchiveService archiveService,
+                    @Qualifier("stockBucketService") StockBucketService stockBucketService,
+                    @Qualifier("conflictRetryService") ConflictRetryService conflictRetryService) {
+        this.archiveService = archiveService;
+        this.stockBucketService = stockBucketService;
+        this.conflictRetryService = conflictRetryService;
+    }
+
+    @Operation(summary = "Archive deleted rows", description = "Start moving soft-deleted orders, order items and products older than the configured age to the archive tables")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202",
+                    description = "Archiving started"),
+            @ApiResponse(responseCode = "409",
+                    description = "Archiving is already running",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @PostMapping("/archive")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void archive() {
+        archiveService.start();
+    }
+
+    @Operation(summary = "Get archiving status", description = "Whether archiving is running and the rows moved by its last finished run")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Archiving status",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ArchiveStatus.class)))
+    })
+    @GetMapping("/archive")
+    public ArchiveStatus archiveStatus() {
+        return archiveService.status();
+    }
+
+    @Operation(summary = "Split the stock of a product", description = "Spread the units on hand of a heavily ordered product over the given number of stock buckets, or gather them back with a count of 1")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204",
+                    description = "Stock split"),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid number of buckets, or the inventory engine does not use buckets",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class))),
+            @ApiResponse(responseCode = "404",
+                    description = "Product not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @PutMapping("/products/{id}/stock-buckets")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void splitStock(@PathVariable String id, @RequestParam int count) {
+        stockBucketService.split(id, count);
+    }
+
+    @Operation(summary = "Get the most contended rows", description = "List the products, orders or order items whose updates met the most optimistic locking conflicts on this node")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Successfully retrieved list",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = Contention.class)))),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid scope or limit",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/contention")
+    public List<Contention> contention(@RequestParam(defaultValue = "products") String scope,
+                                       @RequestParam(defaultValue = "10") int limit) {
+        return conflictRetryService.mostContended(scope, limit);
+    }
+}
@@ -1,30 +1,55 @@
 package com.challenge.api.controller;
 
 import com.challenge.api.model.dto.APIErrorResponse;
+import com.challenge.api.model.dto.CursorPage;
+import com.challenge.api.model.dto.OrderBatchResult;
 import com.challenge.api.model.dto.OrderRequest;
 import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.services.ConflictRetryService;
 import com.challenge.api.services.CrudService;
+import com.challenge.api.services.IdempotencyService;
+import com.challenge.api.services.ExportFormat;
+import com.challenge.api.services.ExportService;
+import com.challenge.api.services.OrderBatchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
     private final CrudService<OrderRequest, OrderResponse, String> ordersService;
+    private final OrderBatchService orderBatchService;
+    private final ExportService exportService;
+    private final IdempotencyService idempotencyService;
+    private final ConflictRetryService conflictRetryService;
 
     @Autowired
-    public OrderController(@Qualifier("ordersService") CrudService<OrderRequest, OrderResponse, String> ordersService) {
+    public OrderController(@Qualifier("ordersService") CrudService<OrderRequest, OrderResponse, String> ordersService,
+                           @Qualifier("orderBatchService") OrderBatchService orderBatchService,
+                           @Qualifier("exportService") ExportService exportService,
+                           @Qualifier("idempotencyService") IdempotencyService idempotencyService,
+                           @Qualifier("conflictRetryService") ConflictRetryService conflictRetryService) {
         this.ordersService = ordersService;
+        this.orderBatchService = orderBatchService;
+        this.exportService = exportService;
+        this.idempotencyService = idempotencyService;
+        this.conflictRetryService = conflictRetryService;
     }
 
     @Operation(summary = "Get all orders", description = "Retrieve a paginated list of all orders")
@@ -43,6 +68,39 @@ public class OrderController {
         return ordersService.getAll(pageable);
     }
 
+    @Operation(summary = "Get orders by cursor", description = "Retrieve a list of orders after the given cursor, without counting the total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Successfully retrieved list",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid cursor or page size",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/scroll")
+    public CursorPage<OrderResponse> scroll(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ordersService.getAll(cursor, size);
+    }
+
+    @Operation(summary = "Export all orders", description = "Stream every active order as CSV or NDJSON, one row per item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Export streamed"),
+            @ApiResponse(responseCode = "400",
+                    description = "Unsupported export format",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.getMediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=orders." + exportFormat.getExtension());
+        exportService.exportOrders(exportFormat, response.getOutputStream());
+    }
+
     @Operation(summary = "Get order by ID", description = "Retrieve an order by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
@@ -59,7 +117,8 @@ public class OrderController {
         return ordersService.getById(id);
     }
 
-    @Operation(summary = "Create a new order", description = "Create a new order")
+    @Operation(summary = "Create a new order", description = "Create a new order, " +
+            "requests repeating the Idempotency-Key of a created order get the response of that order")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201",
                     description = "Order created successfully",
@@ -72,8 +131,25 @@ public class OrderController {
     })
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public OrderResponse create(@RequestBody OrderRequest orderRequest) throws Exception {
-        return ordersService.create(orderRequest);
+    public OrderResponse create(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                @RequestBody OrderRequest orderRequest) throws Exception {
+        return idempotencyService.execute("orders", idempotencyKey, orderRequest, OrderResponse.class,
+                () -> ordersService.create(orderRequest));
+    }
+
+    @Operation(summary = "Create orders in bulk", description = "Create one order per line of an NDJSON body, " +
+            "answering one NDJSON line per order with its ID or the error it was rejected with")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Batch processed, rejected orders are reported in their result line",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = OrderBatchResult.class)))
+    })
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void createBatch(InputStream body, HttpServletResponse response) throws IOException {
+        // The body is read and the results written while the batch runs, neither is buffered whole
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        orderBatchService.ingest(body, response.getOutputStream());
     }
 
     @Operation(summary = "Update an order", description = "Update an existing order by its ID")
@@ -84,13 +160,17 @@ public class OrderController {
                             schema = @Schema(implementation = OrderResponse.class))),
             @ApiResponse(responseCode = "404",
                     description = "Order not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class))),
+            @ApiResponse(responseCode = "409",
+                    description = "Not enough units on hand, or the order kept being modified concurrently",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = APIErrorResponse.class)))
     })
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.CREATED)
     public OrderResponse update(@PathVariable String id, @RequestBody OrderRequest orderRequest) throws Exception {
-        return ordersService.update(id, orderRequest);
+        return conflictRetryService.execute("orders", id, () -> ordersService.update(id, orderRequest));
     }
 
     @Operation(summary = "Delete an order", description = "Delete an order by its ID")
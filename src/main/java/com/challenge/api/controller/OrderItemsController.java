@@ -1,9 +1,12 @@
 package com.challenge.api.controller;
 
 import com.challenge.api.model.dto.APIErrorResponse;
+import com.challenge.api.model.dto.CursorPage;
 import com.challenge.api.model.dto.OrderItemRequest;
 import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.services.ConflictRetryService;
 import com.challenge.api.services.CrudService;
+import com.challenge.api.services.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -22,10 +25,16 @@ import org.springframework.web.bind.annotation.*;
 public class OrderItemsController {
 
     private final CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+    private final IdempotencyService idempotencyService;
+    private final ConflictRetryService conflictRetryService;
 
     @Autowired
-    public OrderItemsController(@Qualifier("orderItemsService") CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService) {
+    public OrderItemsController(@Qualifier("orderItemsService") CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService,
+                                @Qualifier("idempotencyService") IdempotencyService idempotencyService,
+                                @Qualifier("conflictRetryService") ConflictRetryService conflictRetryService) {
         this.orderItemsService = orderItemsService;
+        this.idempotencyService = idempotencyService;
+        this.conflictRetryService = conflictRetryService;
     }
 
     @Operation(summary = "Get all order items", description = "Retrieve a paginated list of all order items")
@@ -44,6 +53,22 @@ public class OrderItemsController {
         return orderItemsService.getAll(pageable);
     }
 
+    @Operation(summary = "Get order items by cursor", description = "Retrieve a list of order items after the given cursor, without counting the total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Successfully retrieved list",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid cursor or page size",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/scroll")
+    public CursorPage<OrderItemResponse> scroll(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return orderItemsService.getAll(cursor, size);
+    }
+
     @Operation(summary = "Get order item by ID", description = "Retrieve an order item by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
@@ -60,7 +85,8 @@ public class OrderItemsController {
         return orderItemsService.getById(id);
     }
 
-    @Operation(summary = "Create a new order item", description = "Create a new order item")
+    @Operation(summary = "Create a new order item", description = "Create a new order item, " +
+            "requests repeating the Idempotency-Key of a created item get the response of that item")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201",
                     description = "Order item created successfully",
@@ -73,8 +99,10 @@ public class OrderItemsController {
     })
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public OrderItemResponse create(@RequestBody OrderItemRequest orderItemRequest) throws Exception {
-        return orderItemsService.create(orderItemRequest);
+    public OrderItemResponse create(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                    @RequestBody OrderItemRequest orderItemRequest) throws Exception {
+        return idempotencyService.execute("order-items", idempotencyKey, orderItemRequest, OrderItemResponse.class,
+                () -> orderItemsService.create(orderItemRequest));
     }
 
     @Operation(summary = "Update an order item", description = "Update an existing order item by its ID")
@@ -85,13 +113,17 @@ public class OrderItemsController {
                             schema = @Schema(implementation = OrderItemResponse.class))),
             @ApiResponse(responseCode = "404",
                     description = "Order item not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class))),
+            @ApiResponse(responseCode = "409",
+                    description = "Not enough units on hand, or the order item kept being modified concurrently",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = APIErrorResponse.class)))
     })
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     public OrderItemResponse update(@PathVariable String id, @RequestBody OrderItemRequest orderItemRequest) throws Exception {
-        return orderItemsService.update(id, orderItemRequest);
+        return conflictRetryService.execute("order-items", id, () -> orderItemsService.update(id, orderItemRequest));
     }
 
     @Operation(summary = "Delete an order item", description = "Delete an order item by its ID")
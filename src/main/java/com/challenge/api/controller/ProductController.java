@@ -1,29 +1,43 @@
 package com.challenge.api.controller;
 
 import com.challenge.api.model.dto.APIErrorResponse;
+import com.challenge.api.model.dto.CursorPage;
 import com.challenge.api.model.dto.Product;
+import com.challenge.api.services.ConflictRetryService;
 import com.challenge.api.services.CrudService;
+import com.challenge.api.services.ExportFormat;
+import com.challenge.api.services.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/products")
 public class ProductController {
     private final CrudService<Product, Product, String> productService;
+    private final ExportService exportService;
+    private final ConflictRetryService conflictRetryService;
 
     @Autowired
-    ProductController(@Qualifier("productsService") CrudService<Product, Product, String> productService) {
+    ProductController(@Qualifier("productsService") CrudService<Product, Product, String> productService,
+                      @Qualifier("exportService") ExportService exportService,
+                      @Qualifier("conflictRetryService") ConflictRetryService conflictRetryService) {
         this.productService = productService;
+        this.exportService = exportService;
+        this.conflictRetryService = conflictRetryService;
     }
 
     @Operation(summary = "Get all products", description = "Retrieve a paginated list of all products")
@@ -42,6 +56,39 @@ public class ProductController {
         return productService.getAll(pageable);
     }
 
+    @Operation(summary = "Get products by cursor", description = "Retrieve a list of products after the given cursor, without counting the total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Successfully retrieved list",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid cursor or page size",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/scroll")
+    public CursorPage<Product> scroll(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return productService.getAll(cursor, size);
+    }
+
+    @Operation(summary = "Export all products", description = "Stream every active product as CSV or NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Export streamed"),
+            @ApiResponse(responseCode = "400",
+                    description = "Unsupported export format",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.getMediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + exportFormat.getExtension());
+        exportService.exportProducts(exportFormat, response.getOutputStream());
+    }
+
     @Operation(summary = "Get product by ID", description = "Retrieve a product by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
@@ -83,13 +130,17 @@ public class ProductController {
                             schema = @Schema(implementation = Product.class))),
             @ApiResponse(responseCode = "404",
                     description = "Product not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class))),
+            @ApiResponse(responseCode = "409",
+                    description = "Product kept being modified concurrently",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = APIErrorResponse.class)))
     })
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.CREATED)
     public Product update(@PathVariable String id, @RequestBody Product product) throws Exception {
-        return productService.update(id, product);
+        return conflictRetryService.execute("products", id, () -> productService.update(id, product));
     }
 
     @Operation(summary = "Delete a product", description = "Delete a product by its ID")
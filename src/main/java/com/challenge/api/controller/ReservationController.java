@@ -0,0 +1,109 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dto.APIErrorResponse;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.model.dto.ReservationRequest;
+import com.challenge.api.model.dto.ReservationResponse;
+import com.challenge.api.services.IdempotencyService;
+import com.challenge.api.services.ReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/reservations")
+public class ReservationController {
+
+    private final ReservationService reservationService;
+    private final IdempotencyService idempotencyService;
+
+    @Autowired
+    public ReservationController(@Qualifier("reservationService") ReservationService reservationService,
+                                 @Qualifier("idempotencyService") IdempotencyService idempotencyService) {
+        this.reservationService = reservationService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Operation(summary = "Get reservation by ID", description = "Retrieve a reservation that was not confirmed, cancelled or expired yet")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Successfully retrieved reservation",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReservationResponse.class))),
+            @ApiResponse(responseCode = "404",
+                    description = "Reservation not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @GetMapping("/{id}")
+    public ReservationResponse getById(@PathVariable String id) {
+        return reservationService.getById(id);
+    }
+
+    @Operation(summary = "Reserve units of a product", description = "Hold units of a product until the reservation " +
+            "is confirmed or cancelled, or returns them once it expires. Requests repeating the Idempotency-Key of a " +
+            "created reservation get the response of that reservation")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201",
+                    description = "Units reserved",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReservationResponse.class))),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid input",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class))),
+            @ApiResponse(responseCode = "404",
+                    description = "Product not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class))),
+            @ApiResponse(responseCode = "409",
+                    description = "Not enough units on hand",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public ReservationResponse create(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                      @RequestBody ReservationRequest reservationRequest) throws Exception {
+        return idempotencyService.execute("reservations", idempotencyKey, reservationRequest, ReservationResponse.class,
+                () -> reservationService.create(reservationRequest));
+    }
+
+    @Operation(summary = "Confirm a reservation", description = "Turn a reservation into an item of the given order, which keeps its units")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201",
+                    description = "Order item created",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = OrderItemResponse.class))),
+            @ApiResponse(responseCode = "404",
+                    description = "Reservation, order or product not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @PostMapping("/{id}/confirm")
+    @ResponseStatus(HttpStatus.CREATED)
+    public OrderItemResponse confirm(@PathVariable String id, @RequestParam String orderId) {
+        return reservationService.confirm(id, orderId);
+    }
+
+    @Operation(summary = "Cancel a reservation", description = "Return the units of a reservation to its product")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204",
+                    description = "Reservation cancelled"),
+            @ApiResponse(responseCode = "404",
+                    description = "Reservation not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = APIErrorResponse.class)))
+    })
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancel(@PathVariable String id) {
+        reservationService.cancel(id);
+    }
+}
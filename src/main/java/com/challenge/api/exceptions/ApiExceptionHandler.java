@@ -4,6 +4,7 @@ import com.challenge.api.model.dto.APIErrorResponse;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -42,6 +43,19 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
                 .body(new APIErrorResponse(List.of(ex.getMessage())));
     }
 
+    @ExceptionHandler(ArchiveRunningException.class)
+    public ResponseEntity<APIErrorResponse> handleArchiveRunningException(ArchiveRunningException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new APIErrorResponse(List.of(ex.getMessage())));
+    }
+
+    // Left once the update ran out of retries, see ConflictRetryService
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<APIErrorResponse> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new APIErrorResponse(List.of("The resource was modified concurrently, retry the request")));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<APIErrorResponse> handleGenericException(Exception ex) {
         if (ex.getCause() instanceof ConstraintViolationException) {
@@ -0,0 +1,7 @@
+package com.challenge.api.exceptions;
+
+public class ArchiveRunningException extends IllegalStateException {
+    public ArchiveRunningException() {
+        super("Archiving is already running");
+    }
+}
@@ -0,0 +1,46 @@
+package com.challenge.api.model.dao;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity(name = "idempotency_keys")
+@NoArgsConstructor
+public class IdempotencyKeyDAO implements Persistable<String> {
+
+    public IdempotencyKeyDAO(String id, String requestHash, LocalDateTime createdAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.createdAt = createdAt;
+    }
+
+    // The endpoint and the key sent by the client
+    @Id
+    @Column(name = "idempotency_key", updatable = false, nullable = false, length = 300)
+    private String id;
+
+    // SHA-256 of the request body, a key cannot be reused for a different request
+    @Column(name = "request_hash", updatable = false, nullable = false, length = 64)
+    private String requestHash;
+
+    // JSON of the response, written in the same transaction as the key
+    @Column(name = "response", columnDefinition = "text")
+    private String response;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    // Keys are always inserted, saving one must not merge it with a select first
+    @Transient
+    private boolean isNew = true;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
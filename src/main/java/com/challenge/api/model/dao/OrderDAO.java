@@ -2,29 +2,42 @@ package com.challenge.api.model.dao;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.validator.constraints.Length;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Data
 @Entity(name = "orders")
 @NoArgsConstructor
-@AllArgsConstructor
 public class OrderDAO {
 
-    public OrderDAO(String id) {
+    public OrderDAO(UUID id) {
         this.id = id;
     }
 
+    public OrderDAO(UUID id, String customerName, LocalDateTime localDateTime, BigDecimal total, boolean active,
+                    List<OrderItemDAO> items) {
+        this.id = id;
+        this.customerName = customerName;
+        this.localDateTime = localDateTime;
+        this.total = total;
+        this.active = active;
+        this.items = items;
+    }
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "order_id", updatable = false, nullable = false)
-    private String id;
+    private UUID id;
 
     @Column(name = "customer_name", nullable = false, length = 100)
     @NotNull(message = "Customer name is required")
@@ -35,13 +48,23 @@ public class OrderDAO {
     @NotNull(message = "Order date is required")
     private LocalDateTime localDateTime;
 
-    @Column(name = "total", nullable = false)
+    // Maintained by OrdersRepository.addToTotal/recalculateTotals, never overwritten from a loaded entity
+    @Column(name = "total", nullable = false, updatable = false)
     @NotNull(message = "Total is required")
     private BigDecimal total;
 
     @Column(name = "active", nullable = false)
     private boolean active;
 
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // Only the item ids are cached here, the items themselves come from the order_items region
     @OneToMany(mappedBy = "order", cascade = CascadeType.PERSIST)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<OrderItemDAO> items;
 }
@@ -3,23 +3,40 @@ package com.challenge.api.model.dao;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @Entity(name = "order_items")
+// Written through the session only, so the cache entries are updated or evicted one item at a time. A bulk statement
+// on order_items would evict the whole region, and the cached OrderDAO.items with it
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NoArgsConstructor
-@AllArgsConstructor
 public class OrderItemDAO {
 
+    public OrderItemDAO(UUID id, BigInteger quantity, BigDecimal unitPrice, boolean active, ProductDAO product,
+                        OrderDAO order) {
+        this.id = id;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.active = active;
+        this.product = product;
+        this.order = order;
+    }
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "order_item_id", updatable = false, nullable = false)
-    private String id;
+    private UUID id;
 
     @Column(name = "quantity", nullable = false)
     @NotNull(message = "Quantity is required")
@@ -34,6 +51,13 @@ public class OrderItemDAO {
     @Column(name = "active", nullable = false)
     private boolean active;
 
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name="product_id", nullable = false)
     private ProductDAO product;
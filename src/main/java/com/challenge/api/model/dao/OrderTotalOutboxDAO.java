@@ -0,0 +1,31 @@
+package com.challenge.api.model.dao;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// An order whose total must be recalculated, written in the transaction of the item change that requires it
+@Data
+@Entity(name = "order_total_outbox")
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTotalOutboxDAO {
+
+    // Time ordered, so entries are drained in the order they were written
+    @Id
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class)
+    @Column(name = "outbox_id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "order_id", updatable = false, nullable = false)
+    private UUID orderId;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+}
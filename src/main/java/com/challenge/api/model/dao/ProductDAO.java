@@ -4,28 +4,43 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.validator.constraints.Length;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @Entity(name = "products")
+// Not second-level cached, the stock queries are bulk updates that would evict the whole region on every reservation.
+// The products of cached order items are loaded in one select instead
+@BatchSize(size = 50)
 @NoArgsConstructor
-@AllArgsConstructor
 public class ProductDAO {
 
-    public ProductDAO(String id) {
+    public ProductDAO(UUID id) {
         this.id = id;
     }
 
+    public ProductDAO(UUID id, String name, String description, BigInteger onHand, BigDecimal unitPrice, boolean active) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.onHand = onHand;
+        this.unitPrice = unitPrice;
+        this.active = active;
+    }
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     @Column(name = "product_id", updatable = false, nullable = false)
-    private String id;
+    private UUID id;
 
     @Column(name = "product_name", nullable = false, length = 50)
     @NotNull(message = "Product name is required")
@@ -51,4 +66,16 @@ public class ProductDAO {
 
     @Column(name = "active", nullable = false)
     private boolean active;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Bumped by entity updates, soft deletes and the stock queries, which move units without checking it
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // Units held by active order items, maintained by the stock queries and never overwritten from a loaded entity
+    @Column(name = "reserved_units", nullable = false, updatable = false)
+    private BigInteger reservedUnits = BigInteger.ZERO;
 }
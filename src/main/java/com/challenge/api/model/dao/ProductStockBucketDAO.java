@@ -0,0 +1,27 @@
+package com.challenge.api.model.dao;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigInteger;
+
+// Part of the units on hand of a split product, reserved and released by the stock bucket queries only
+@Data
+@Entity(name = "product_stock_buckets")
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockBucketDAO {
+
+    @EmbeddedId
+    private ProductStockBucketId id;
+
+    @Column(name = "on_hand", nullable = false)
+    private BigInteger onHand;
+
+    @Column(name = "reserved_units", nullable = false)
+    private BigInteger reservedUnits;
+}
@@ -0,0 +1,34 @@
+package com.challenge.api.model.dao;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Units held for a customer, deleted once confirmed into an order item, cancelled or expired
+@Data
+@Entity(name = "reservations")
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationDAO {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class)
+    @Column(name = "reservation_id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "product_id", updatable = false, nullable = false)
+    private UUID productId;
+
+    @Column(name = "quantity", updatable = false, nullable = false)
+    private BigInteger quantity;
+
+    @Column(name = "expires_at", updatable = false, nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,15 @@
+package com.challenge.api.model.dao;
+
+import com.challenge.api.utils.UuidUtils;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+
+public class UuidV7Generator implements UuidValueGenerator {
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return UuidUtils.randomV7();
+    }
+}
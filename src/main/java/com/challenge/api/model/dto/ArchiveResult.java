@@ -0,0 +1,5 @@
+package com.challenge.api.model.dto;
+
+// Rows moved to the archive tables by one run of the archiver
+public record ArchiveResult(long orders, long orderItems, long products) {
+}
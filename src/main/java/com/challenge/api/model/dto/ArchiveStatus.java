@@ -0,0 +1,5 @@
+package com.challenge.api.model.dto;
+
+// Whether the archiver is running and the rows moved by its last finished run, null before the first one
+public record ArchiveStatus(boolean running, ArchiveResult last) {
+}
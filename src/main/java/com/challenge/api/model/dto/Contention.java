@@ -0,0 +1,5 @@
+package com.challenge.api.model.dto;
+
+// Optimistic locking conflicts met by the updates of one row since it was last evicted from the contention counts
+public record Contention(String scope, String key, long conflicts) {
+}
@@ -0,0 +1,6 @@
+package com.challenge.api.model.dto;
+
+import java.util.List;
+
+public record CursorPage<T>(List<T> content, String nextCursor) {
+}
@@ -0,0 +1,11 @@
+package com.challenge.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one line of a batch: the id of the created order, or the status and message the order would have
+ * been rejected with by {@code POST /orders}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderBatchResult(long line, String id, Integer status, String error) {
+}
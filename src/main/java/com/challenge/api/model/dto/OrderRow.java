@@ -0,0 +1,9 @@
+package com.challenge.api.model.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// One row of an order flat-joined with one of its active items, item columns are null for orders without items
+public record OrderRow(UUID orderId, String customerName, BigDecimal total,
+                       UUID itemId, UUID productId, String productName, BigDecimal price, Integer quantity) {
+}
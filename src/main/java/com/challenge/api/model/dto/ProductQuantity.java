@@ -0,0 +1,8 @@
+package com.challenge.api.model.dto;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+// Units of a product summed over several order items
+public record ProductQuantity(UUID productId, BigInteger quantity) {
+}
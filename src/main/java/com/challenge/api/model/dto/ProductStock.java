@@ -0,0 +1,8 @@
+package com.challenge.api.model.dto;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+// Units on hand of a product and whether it can still be reserved
+public record ProductStock(UUID productId, BigInteger onHand, boolean active) {
+}
@@ -0,0 +1,17 @@
+package com.challenge.api.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationResponse {
+    private String id;
+    private String productId;
+    private int quantity;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,7 @@
+package com.challenge.api.model.dto;
+
+import java.math.BigInteger;
+
+// Units on hand and reserved from one of the buckets of a split product
+public record StockBucket(int bucket, BigInteger onHand, BigInteger reservedUnits) {
+}
@@ -1,5 +1,6 @@
 package com.challenge.api.repositories;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
+import java.util.List;
 import java.util.Optional;
 
 @NoRepositoryBean
@@ -16,10 +18,21 @@ public interface ExtendedCrudRepository<T, ID> extends JpaRepository<T, ID> {
     @Query("SELECT e FROM #{#entityName} e WHERE e.active = true")
     Page<T> findAll(Pageable pageable);
 
+    @Query("SELECT e FROM #{#entityName} e WHERE e.active = true ORDER BY e.id")
+    List<T> findFirstActive(Limit limit);
+
+    @Query("SELECT e FROM #{#entityName} e WHERE e.active = true AND e.id > :id ORDER BY e.id")
+    List<T> findActiveAfter(ID id, Limit limit);
+
     @Query("SELECT e FROM #{#entityName} e WHERE e.id = :id AND e.active = true")
     Optional<T> findById(ID id);
 
+    @Query("SELECT e FROM #{#entityName} e WHERE e.id IN :ids AND e.active = true")
+    List<T> findAllById(Iterable<ID> ids);
+
+    // Bumps the version so an update of the row loaded before the delete fails instead of restoring it
     @Modifying
-    @Query("UPDATE #{#entityName} e SET e.active = false WHERE e.id = :id")
+    @Query("UPDATE #{#entityName} e SET e.active = false, e.deletedAt = LOCAL DATETIME, e.version = e.version + 1 " +
+            "WHERE e.id = :id")
     void softDeleteById(ID id);
 }
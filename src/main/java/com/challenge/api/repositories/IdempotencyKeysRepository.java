@@ -0,0 +1,21 @@
+package com.challenge.api.repositories;
+
+import com.challenge.api.model.dao.IdempotencyKeyDAO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository(value = "idempotencyKeysRepository")
+public interface IdempotencyKeysRepository extends JpaRepository<IdempotencyKeyDAO, String> {
+
+    @Modifying
+    @Query("DELETE FROM idempotency_keys k WHERE k.createdAt < :before")
+    int deleteCreatedBefore(LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM idempotency_keys k WHERE k.id = :id AND k.createdAt < :before")
+    int deleteByIdCreatedBefore(String id, LocalDateTime before);
+}
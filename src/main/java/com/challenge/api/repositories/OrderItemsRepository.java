@@ -1,8 +1,74 @@
 package com.challenge.api.repositories;
 
 import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.model.dto.ProductQuantity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
 @Repository(value = "orderItemsRepository")
-public interface OrderItemsRepository extends ExtendedCrudRepository<OrderItemDAO, String> {
+public interface OrderItemsRepository extends ExtendedCrudRepository<OrderItemDAO, UUID> {
+    String SELECT_DTO = "SELECT new com.challenge.api.model.dto.OrderItemResponse(CAST(i.id AS String), CAST(p.id AS String), p.name, i.unitPrice, " +
+            "CAST(i.quantity AS Integer)) FROM order_items i JOIN i.product p ";
+
+    @Query(value = SELECT_DTO + "WHERE i.active = true",
+            countQuery = "SELECT COUNT(i) FROM order_items i WHERE i.active = true")
+    Page<OrderItemResponse> findAllAsDto(Pageable pageable);
+
+    // Keyset pages are ordered like the (active, id) index, the first page and the next ones alike
+    @Query(SELECT_DTO + "WHERE i.active = true ORDER BY i.active, i.id")
+    List<OrderItemResponse> findFirstActiveAsDto(Limit limit);
+
+    @Query(SELECT_DTO + "WHERE i.active = true AND i.id > :id ORDER BY i.active, i.id")
+    List<OrderItemResponse> findActiveAsDtoAfter(UUID id, Limit limit);
+
+    @Query(SELECT_DTO + "WHERE i.id = :id AND i.active = true")
+    Optional<OrderItemResponse> findAsDtoById(UUID id);
+
+    @Query("SELECT COALESCE(SUM(i.quantity * i.unitPrice), 0) FROM order_items i " +
+            "WHERE i.order.id = :orderId AND i.active = true")
+    BigDecimal sumActiveTotalByOrderId(UUID orderId);
+
+    @Query("SELECT new com.challenge.api.model.dto.ProductQuantity(i.product.id, SUM(i.quantity)) FROM order_items i " +
+            "WHERE i.order.id = :orderId AND i.active = true GROUP BY i.product.id ORDER BY i.product.id")
+    List<ProductQuantity> sumActiveQuantitiesByProduct(UUID orderId);
+
+    List<OrderItemDAO> findAllByOrderIdAndActiveTrue(UUID orderId);
+
+    List<OrderItemDAO> findAllByOrderIdIn(Collection<UUID> orderIds);
+
+    // Active or not, unlike findAllById
+    List<OrderItemDAO> findAllByIdIn(Collection<UUID> ids);
+
+    @Query("SELECT i.id FROM order_items i WHERE i.active = false AND i.id > :after AND i.id < :before " +
+            "AND i.deletedAt < :deletedBefore ORDER BY i.id")
+    List<UUID> findInactiveIdsBetween(UUID after, UUID before, LocalDateTime deletedBefore, Limit limit);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "order_items_archive"))
+    @Query(value = "INSERT INTO order_items_archive (order_item_id, order_id, product_id, quantity, unit_price, archived_at) " +
+            "SELECT order_item_id, order_id, product_id, quantity, unit_price, CURRENT_TIMESTAMP FROM order_items " +
+            "WHERE order_item_id IN :ids", nativeQuery = true)
+    int archiveAllById(Collection<UUID> ids);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "order_items_archive"))
+    @Query(value = "INSERT INTO order_items_archive (order_item_id, order_id, product_id, quantity, unit_price, archived_at) " +
+            "SELECT order_item_id, order_id, product_id, quantity, unit_price, CURRENT_TIMESTAMP FROM order_items " +
+            "WHERE order_id IN :orderIds", nativeQuery = true)
+    int archiveAllByOrderIdIn(Collection<UUID> orderIds);
 }
@@ -0,0 +1,25 @@
+package com.challenge.api.repositories;
+
+import com.challenge.api.model.dao.OrderTotalOutboxDAO;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository(value = "orderTotalOutboxRepository")
+public interface OrderTotalOutboxRepository extends JpaRepository<OrderTotalOutboxDAO, UUID> {
+
+    // Locks the oldest entries, skipping the ones another worker is already draining
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT e FROM order_total_outbox e ORDER BY e.id")
+    List<OrderTotalOutboxDAO> findOldest(Limit limit);
+}
@@ -1,8 +1,91 @@
 package com.challenge.api.repositories;
 
 import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dto.OrderRow;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 @Repository(value = "ordersRepository")
-public interface OrdersRepository extends ExtendedCrudRepository<OrderDAO, String> {
+public interface OrdersRepository extends ExtendedCrudRepository<OrderDAO, UUID> {
+    String SELECT_ROWS = "SELECT new com.challenge.api.model.dto.OrderRow(o.id, o.customerName, o.total, " +
+            "i.id, p.id, p.name, i.unitPrice, CAST(i.quantity AS Integer)) " +
+            "FROM orders o LEFT JOIN o.items i ON i.active = true LEFT JOIN i.product p ";
+
+    @Query(value = "SELECT o.id FROM orders o WHERE o.active = true",
+            countQuery = "SELECT COUNT(o) FROM orders o WHERE o.active = true")
+    Page<UUID> findAllIds(Pageable pageable);
+
+    // Keyset pages are ordered like the (active, id) index, the first page and the next ones alike
+    @Query("SELECT o.id FROM orders o WHERE o.active = true ORDER BY o.active, o.id")
+    List<UUID> findFirstActiveIds(Limit limit);
+
+    @Query("SELECT o.id FROM orders o WHERE o.active = true AND o.id > :id ORDER BY o.active, o.id")
+    List<UUID> findActiveIdsAfter(UUID id, Limit limit);
+
+    @Query(SELECT_ROWS + "WHERE o.id IN :ids AND o.active = true ORDER BY o.id, i.id")
+    List<OrderRow> findRowsByIdIn(Collection<UUID> ids);
+
+    // Forward-only cursor read fetch-size rows at a time, must be consumed and closed inside a transaction. Ordered
+    // like the (active, id) index so the rows are read in index order instead of being sorted in memory first
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(SELECT_ROWS + "WHERE o.active = true ORDER BY o.active, o.id")
+    Stream<OrderRow> streamActiveRows();
+
+    // Items keep the price they were sold at, so totals never need the product rows
+    @Modifying
+    @Query("UPDATE orders o SET o.total = (SELECT COALESCE(SUM(i.quantity * i.unitPrice), 0) FROM order_items i " +
+            "WHERE i.order.id = o.id AND i.active = true) WHERE o.id IN :ids AND o.active = true")
+    int recalculateTotals(Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE orders o SET o.total = o.total + :delta WHERE o.id = :id")
+    int addToTotal(UUID id, BigDecimal delta);
+
+    // Bumps the version on commit even when only the items of the order change, so concurrent updates of the order
+    // conflict instead of both moving the stock of the same lines
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT o FROM orders o WHERE o.id = :id AND o.active = true")
+    Optional<OrderDAO> findByIdIncrementingVersion(UUID id);
+
+    // Returns 0 when the order does not exist or is already deleted, otherwise keeps the order row locked
+    @Modifying
+    @Query("UPDATE orders o SET o.active = false, o.deletedAt = LOCAL DATETIME, o.version = o.version + 1 " +
+            "WHERE o.id = :id AND o.active = true")
+    int softDeleteActiveById(UUID id);
+
+    // Orders soft-deleted before deletedBefore, in id order from after. They were created earlier still, so before
+    // is the id of deletedBefore and bounds the index range
+    @Query("SELECT o.id FROM orders o WHERE o.active = false AND o.id > :after AND o.id < :before " +
+            "AND o.deletedAt < :deletedBefore ORDER BY o.id")
+    List<UUID> findInactiveIdsBetween(UUID after, UUID before, LocalDateTime deletedBefore, Limit limit);
+
+    // Only writes the archive table, so no cached entity needs to be evicted
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "orders_archive"))
+    @Query(value = "INSERT INTO orders_archive (order_id, customer_name, order_date, total, archived_at) " +
+            "SELECT order_id, customer_name, order_date, total, CURRENT_TIMESTAMP FROM orders WHERE order_id IN :ids",
+            nativeQuery = true)
+    int archiveAllById(Collection<UUID> ids);
+
+    @Modifying
+    @Query("DELETE FROM orders o WHERE o.id IN :ids")
+    int deleteAllByIdIn(Collection<UUID> ids);
 }
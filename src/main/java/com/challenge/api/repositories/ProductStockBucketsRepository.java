@@ -0,0 +1,67 @@
+package com.challenge.api.repositories;
+
+import com.challenge.api.model.dao.ProductStockBucketDAO;
+import com.challenge.api.model.dao.ProductStockBucketId;
+import com.challenge.api.model.dto.StockBucket;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.UUID;
+
+@Repository(value = "productStockBucketsRepository")
+public interface ProductStockBucketsRepository extends JpaRepository<ProductStockBucketDAO, ProductStockBucketId> {
+
+    // Locks the first bucket from the given one on, wrapping around, that has the units and no other transaction holds
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT b.id.bucket FROM product_stock_buckets b " +
+            "WHERE b.id.productId = :productId AND b.onHand >= :quantity " +
+            "ORDER BY CASE WHEN b.id.bucket >= :first THEN 0 ELSE 1 END, b.id.bucket")
+    List<Integer> findFreeBucketWithStock(@Param("productId") UUID productId, @Param("quantity") BigInteger quantity,
+                                          @Param("first") int first, Limit limit);
+
+    // Locks the buckets of the product in bucket order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.challenge.api.model.dto.StockBucket(b.id.bucket, b.onHand, b.reservedUnits) " +
+            "FROM product_stock_buckets b WHERE b.id.productId = :productId ORDER BY b.id.bucket")
+    List<StockBucket> findAllForUpdate(UUID productId);
+
+    @Query("SELECT DISTINCT b.id.productId FROM product_stock_buckets b")
+    List<UUID> findSplitProductIds();
+
+    // Returns 0 when the bucket does not have enough units on hand
+    @Modifying
+    @Query("UPDATE product_stock_buckets b SET b.onHand = b.onHand - :quantity, b.reservedUnits = b.reservedUnits + :quantity " +
+            "WHERE b.id.productId = :productId AND b.id.bucket = :bucket AND b.onHand >= :quantity")
+    int reserveStock(@Param("productId") UUID productId, @Param("bucket") int bucket, @Param("quantity") BigInteger quantity);
+
+    @Modifying
+    @Query("UPDATE product_stock_buckets b SET b.onHand = b.onHand + :quantity, b.reservedUnits = b.reservedUnits - :quantity " +
+            "WHERE b.id.productId = :productId AND b.id.bucket = :bucket")
+    int releaseStock(@Param("productId") UUID productId, @Param("bucket") int bucket, @Param("quantity") BigInteger quantity);
+
+    @Modifying
+    @Query("UPDATE product_stock_buckets b SET b.onHand = :onHand, b.reservedUnits = b.reservedUnits + :reserved " +
+            "WHERE b.id.productId = :productId AND b.id.bucket = :bucket")
+    int writeStock(@Param("productId") UUID productId, @Param("bucket") int bucket,
+                   @Param("onHand") BigInteger onHand, @Param("reserved") BigInteger reserved);
+
+    @Modifying
+    @Query("UPDATE product_stock_buckets b SET b.onHand = 0 WHERE b.id.productId = :productId")
+    int emptyAllByProductId(UUID productId);
+
+    @Modifying
+    @Query("DELETE FROM product_stock_buckets b WHERE b.id.productId = :productId")
+    int deleteAllByProductId(UUID productId);
+}
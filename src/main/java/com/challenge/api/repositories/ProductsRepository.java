@@ -1,8 +1,131 @@
 package com.challenge.api.repositories;
 
 import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.model.dto.ProductStock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 @Repository(value = "productsRepository")
-public interface ProductsRepository extends ExtendedCrudRepository<ProductDAO, String> {
+public interface ProductsRepository extends ExtendedCrudRepository<ProductDAO, UUID> {
+    // Units on hand of a split product are the ones in its row and in its stock buckets
+    String SELECT_DTO = "SELECT new com.challenge.api.model.dto.Product(CAST(p.id AS String), p.name, p.description, " +
+            "CAST(p.onHand + COALESCE((SELECT SUM(b.onHand) FROM product_stock_buckets b WHERE b.id.productId = p.id), 0) " +
+            "AS Integer), p.unitPrice) FROM products p ";
+    String ACTIVE_UNITS = "((SELECT COALESCE(SUM(i.quantity), 0) FROM order_items i WHERE i.product.id = p.id AND i.active = true) + " +
+            "(SELECT COALESCE(SUM(r.quantity), 0) FROM reservations r WHERE r.productId = p.id))";
+
+    @Query(value = SELECT_DTO + "WHERE p.active = true",
+            countQuery = "SELECT COUNT(p) FROM products p WHERE p.active = true")
+    Page<Product> findAllAsDto(Pageable pageable);
+
+    // Keyset pages are ordered like the (active, id) index, the first page and the next ones alike
+    @Query(SELECT_DTO + "WHERE p.active = true ORDER BY p.active, p.id")
+    List<Product> findFirstActiveAsDto(Limit limit);
+
+    @Query(SELECT_DTO + "WHERE p.active = true AND p.id > :id ORDER BY p.active, p.id")
+    List<Product> findActiveAsDtoAfter(UUID id, Limit limit);
+
+    // Forward-only cursor read fetch-size rows at a time, must be consumed and closed inside a transaction. Ordered
+    // like the (active, id) index so the rows are read in index order instead of being sorted in memory first
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(SELECT_DTO + "WHERE p.active = true ORDER BY p.active, p.id")
+    Stream<Product> streamActiveAsDto();
+
+    @Query(SELECT_DTO + "WHERE p.id = :id AND p.active = true")
+    Optional<Product> findAsDtoById(UUID id);
+
+    // The queries moving units on hand bump the version, so an update of the product loaded before them fails with a
+    // conflict instead of writing on hand over them. Returns 0 when the product does not exist or does not have enough
+    // units on hand
+    @Modifying
+    @Query("UPDATE products p SET p.onHand = p.onHand - :quantity, p.reservedUnits = p.reservedUnits + :quantity, " +
+            "p.version = p.version + 1 WHERE p.id = :id AND p.active = true AND p.onHand >= :quantity")
+    int reserveStock(@Param("id") UUID id, @Param("quantity") BigInteger quantity);
+
+    @Modifying
+    @Query("UPDATE products p SET p.onHand = p.onHand + :quantity, p.reservedUnits = p.reservedUnits - :quantity, " +
+            "p.version = p.version + 1 WHERE p.id = :id")
+    int releaseStock(@Param("id") UUID id, @Param("quantity") BigInteger quantity);
+
+    @Query("SELECT new com.challenge.api.model.dto.ProductStock(p.id, p.onHand, p.active) FROM products p WHERE p.id = :id")
+    Optional<ProductStock> findStockById(UUID id);
+
+    // Units in the row and in the stock buckets of each active product
+    @Query("SELECT new com.challenge.api.model.dto.ProductStock(p.id, p.onHand + " +
+            "COALESCE((SELECT SUM(b.onHand) FROM product_stock_buckets b WHERE b.id.productId = p.id), 0), p.active) " +
+            "FROM products p WHERE p.id IN :ids AND p.active = true")
+    List<ProductStock> findAllAvailableStock(Collection<UUID> ids);
+
+    // Locks the rows in id order, so transactions locking overlapping products wait on the first one they share
+    // instead of on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.challenge.api.model.dto.ProductStock(p.id, p.onHand, p.active) FROM products p " +
+            "WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductStock> findAllStockForUpdate(Collection<UUID> ids);
+
+    // Writes on hand as counted by the in-memory inventory together with the units reserved since its last write
+    @Modifying
+    @Query("UPDATE products p SET p.onHand = :onHand, p.reservedUnits = p.reservedUnits + :reserved, " +
+            "p.version = p.version + 1 WHERE p.id = :id")
+    int writeStock(@Param("id") UUID id, @Param("onHand") BigInteger onHand, @Param("reserved") BigInteger reserved);
+
+    @Modifying
+    @Query("UPDATE products p SET p.reservedUnits = p.reservedUnits + :reserved WHERE p.id = :id")
+    int addReservedUnits(@Param("id") UUID id, @Param("reserved") BigInteger reserved);
+
+    // Moves units between the product row and its stock buckets, returns 0 when the row does not have enough
+    @Modifying
+    @Query("UPDATE products p SET p.onHand = p.onHand - :quantity, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.onHand >= :quantity")
+    int takeOnHand(@Param("id") UUID id, @Param("quantity") BigInteger quantity);
+
+    @Modifying
+    @Query("UPDATE products p SET p.onHand = p.onHand + :onHand, p.reservedUnits = p.reservedUnits + :reserved, " +
+            "p.version = p.version + 1 WHERE p.id = :id")
+    int addStock(@Param("id") UUID id, @Param("onHand") BigInteger onHand, @Param("reserved") BigInteger reserved);
+
+    // Takes the units of active order items and reservations not yet counted in reserved units out of on hand, and
+    // returns the ones counted for items and reservations that are gone
+    @Modifying
+    @Query("UPDATE products p SET p.onHand = p.onHand + p.reservedUnits - " + ACTIVE_UNITS + ", " +
+            "p.reservedUnits = " + ACTIVE_UNITS + ", p.version = p.version + 1 WHERE p.reservedUnits <> " + ACTIVE_UNITS)
+    int reconcileReservedUnits();
+
+    // Products still referenced by an order item stay until the item is archived, and by a reservation until it expires
+    @Query("SELECT p.id FROM products p WHERE p.active = false AND p.id > :after AND p.id < :before " +
+            "AND p.deletedAt < :deletedBefore " +
+            "AND NOT EXISTS (SELECT 1 FROM order_items i WHERE i.product.id = p.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM reservations r WHERE r.productId = p.id) ORDER BY p.id")
+    List<UUID> findUnreferencedInactiveIdsBetween(UUID after, UUID before, LocalDateTime deletedBefore, Limit limit);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "products_archive"))
+    @Query(value = "INSERT INTO products_archive (product_id, product_name, product_description, on_hand, unit_price, archived_at) " +
+            "SELECT product_id, product_name, product_description, on_hand, unit_price, CURRENT_TIMESTAMP FROM products " +
+            "WHERE product_id IN :ids", nativeQuery = true)
+    int archiveAllById(Collection<UUID> ids);
+
+    @Modifying
+    @Query("DELETE FROM products p WHERE p.id IN :ids")
+    int deleteAllByIdIn(Collection<UUID> ids);
 }
@@ -0,0 +1,47 @@
+package com.challenge.api.repositories;
+
+import com.challenge.api.model.dao.ReservationDAO;
+import com.challenge.api.model.dto.ReservationResponse;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository(value = "reservationsRepository")
+public interface ReservationsRepository extends JpaRepository<ReservationDAO, UUID> {
+
+    @Query("SELECT new com.challenge.api.model.dto.ReservationResponse(CAST(r.id AS String), CAST(r.productId AS String), " +
+            "CAST(r.quantity AS Integer), r.expiresAt) FROM reservations r WHERE r.id = :id")
+    Optional<ReservationResponse> findAsDtoById(UUID id);
+
+    // Locked so a confirmation, a cancellation and an expiry of the same reservation run one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM reservations r WHERE r.id = :id")
+    Optional<ReservationDAO> findByIdForUpdate(UUID id);
+
+    // Locks the ones of the reservations that were not confirmed or cancelled in the meantime
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM reservations r WHERE r.id IN :ids ORDER BY r.id")
+    List<ReservationDAO> findAllByIdForUpdate(Collection<UUID> ids);
+
+    @Query("SELECT r FROM reservations r")
+    Stream<ReservationDAO> streamAll();
+
+    // Oldest first, through the expires_at index
+    @Query("SELECT r.id FROM reservations r WHERE r.expiresAt < :before ORDER BY r.expiresAt")
+    List<UUID> findIdsExpiredBefore(LocalDateTime before, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM reservations r WHERE r.id IN :ids")
+    int deleteAllByIdIn(Collection<UUID> ids);
+}
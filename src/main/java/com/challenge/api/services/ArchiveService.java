@@ -0,0 +1,26 @@
+package com.challenge.api.services;
+
+import com.challenge.api.model.dto.ArchiveResult;
+import com.challenge.api.model.dto.ArchiveStatus;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface ArchiveService {
+    /**
+     * Moves the soft-deleted orders, order items and products older than the configured age to their archive
+     * tables. Orders are archived with all their items and products only once no order item references them.
+     * Runs on the calling thread for as long as the paced run takes.
+     *
+     * @throws com.challenge.api.exceptions.ArchiveRunningException when a run is already in progress
+     */
+    ArchiveResult archive();
+
+    /**
+     * Starts the same run on the archiver's own thread and returns at once.
+     *
+     * @throws com.challenge.api.exceptions.ArchiveRunningException when a run is already in progress
+     */
+    CompletableFuture<ArchiveResult> start();
+
+    ArchiveStatus status();
+}
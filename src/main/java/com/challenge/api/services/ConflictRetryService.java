@@ -0,0 +1,19 @@
+package com.challenge.api.services;
+
+import com.challenge.api.model.dto.Contention;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public interface ConflictRetryService {
+    /**
+     * Runs the action and runs it again after a jittered backoff while it fails on an optimistic locking conflict,
+     * up to the configured number of attempts and while the retry budget lasts, then lets the conflict through.
+     * Conflicts are counted per scope and per key, the id of the contended row. Inside a transaction the action runs
+     * once, as a retry would run in the transaction the conflict already marked for rollback.
+     */
+    <T> T execute(String scope, String key, Callable<T> action) throws Exception;
+
+    // Rows of the scope with the most conflicts, most contended first
+    List<Contention> mostContended(String scope, int limit);
+}
@@ -1,10 +1,12 @@
 package com.challenge.api.services;
 
+import com.challenge.api.model.dto.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 public interface CrudService<RQ, RS, ID> {
     Page<RS> getAll(Pageable pageable);
+    CursorPage<RS> getAll(String cursor, int size);
     RS getById(ID id);
     RS create(RQ request) throws Exception;
     RS update(ID id, RQ request) throws Exception;
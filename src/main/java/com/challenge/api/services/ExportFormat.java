@@ -0,0 +1,26 @@
+package com.challenge.api.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE, "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    public static ExportFormat of(String format) {
+        for (ExportFormat exportFormat : values()) {
+            if (exportFormat.extension.equals(format.toLowerCase(Locale.ROOT))) {
+                return exportFormat;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format " + format);
+    }
+}
@@ -0,0 +1,14 @@
+package com.challenge.api.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    /**
+     * Writes every active order to the output, one row per active item of the order
+     * and a single row without item columns for orders without items.
+     */
+    void exportOrders(ExportFormat format, OutputStream output) throws IOException;
+
+    void exportProducts(ExportFormat format, OutputStream output) throws IOException;
+}
@@ -0,0 +1,14 @@
+package com.challenge.api.services;
+
+import java.util.concurrent.Callable;
+
+public interface IdempotencyService {
+    String HEADER = "Idempotency-Key";
+
+    /**
+     * Runs the action once per key and scope, answering later calls with the same key with the stored response
+     * of the first one. Without a key the action always runs. Failed actions are not stored, so they can be retried
+     * with the same key.
+     */
+    <T> T execute(String scope, String key, Object request, Class<T> responseType, Callable<T> action) throws Exception;
+}
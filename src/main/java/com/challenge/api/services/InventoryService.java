@@ -0,0 +1,48 @@
+package com.challenge.api.services;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Moves units between products and the order items holding them. Every change of an order item's quantity goes
+ * through here, inside the transaction that changes the item, so the units follow the item if it rolls back.
+ */
+public interface InventoryService {
+    /**
+     * Takes the units from the product, returns false when the product does not exist, is deleted or does not have
+     * that many units on hand.
+     */
+    boolean reserve(UUID productId, BigInteger quantity);
+
+    /**
+     * Takes the units of every product or of none, returns the first product that could not be reserved. Engines that
+     * lock products lock them in id order, so orders sharing products cannot deadlock.
+     */
+    Optional<UUID> reserveAll(Map<UUID, BigInteger> quantities);
+
+    /**
+     * Units the products can be reserved for as of now, leaving out deleted and unknown products. Meant for checks
+     * ahead of a reservation, which stays the final word.
+     */
+    Map<UUID, BigInteger> available(Collection<UUID> productIds);
+
+    /**
+     * Returns the units to the product.
+     */
+    void release(UUID productId, BigInteger quantity);
+
+    /**
+     * Called when an update of the product itself sets its units on hand.
+     */
+    default void restocked(UUID productId, BigInteger onHand) {
+    }
+
+    /**
+     * Called when the product is deleted, after which it cannot be reserved.
+     */
+    default void retired(UUID productId) {
+    }
+}
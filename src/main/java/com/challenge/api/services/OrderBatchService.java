@@ -0,0 +1,13 @@
+package com.challenge.api.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface OrderBatchService {
+    /**
+     * Creates one order per NDJSON line of the input and writes one result line per order to the output,
+     * in the same order. A rejected order does not stop the orders after it.
+     */
+    void ingest(InputStream input, OutputStream output) throws IOException;
+}
@@ -1,8 +1,16 @@
 package com.challenge.api.services;
 
-import java.math.BigDecimal;
-import java.util.concurrent.Future;
+import java.util.UUID;
 
 public interface OrderTotalService {
-    Future<BigDecimal> calculateTotalAsync(String orderId);
+    /**
+     * Records that the total of the order must be recalculated. The record is part of the current transaction,
+     * so it is only acted on once the change that required it is committed, and is dropped if it rolls back.
+     */
+    void recalculateTotal(UUID orderId);
+
+    /**
+     * Recalculates the totals of the oldest batch of recorded orders and returns the number of records drained.
+     */
+    int drainOutbox();
 }
@@ -0,0 +1,13 @@
+package com.challenge.api.services;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Tells every node caching products that a product changed, so none keeps serving the old copy.
+ */
+public interface ProductInvalidationBus {
+    void publish(UUID productId);
+
+    void subscribe(Consumer<UUID> listener);
+}
@@ -0,0 +1,37 @@
+package com.challenge.api.services;
+
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.model.dto.ReservationRequest;
+import com.challenge.api.model.dto.ReservationResponse;
+
+public interface ReservationService {
+    /**
+     * Holds the units for the configured time, taking them out of the units on hand of the product.
+     */
+    ReservationResponse create(ReservationRequest request) throws OutOfStockException;
+
+    ReservationResponse getById(String id);
+
+    /**
+     * Turns the reservation into an item of the order, keeping its units reserved.
+     */
+    OrderItemResponse confirm(String id, String orderId);
+
+    /**
+     * Returns the units of the reservation to the product.
+     */
+    void cancel(String id);
+
+    /**
+     * Returns the units of the reservations that expired by the given time, in batches, and returns the number of
+     * reservations expired.
+     */
+    int expire(long nowMillis);
+
+    /**
+     * Expires the reservations in the table that should have expired a sweep interval before the given time, whichever
+     * node created them, and returns the number of reservations expired.
+     */
+    int sweep(long nowMillis);
+}
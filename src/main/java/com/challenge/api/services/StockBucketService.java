@@ -0,0 +1,49 @@
+package com.challenge.api.services;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+public interface StockBucketService {
+    /**
+     * Spreads the units on hand of the product over the given number of stock buckets, or gathers them back into
+     * the product row when the number is 1.
+     */
+    void split(String productId, int buckets);
+
+    /**
+     * Takes the units from one of the buckets of the product, rebalancing them when none has enough on its own.
+     * Returns false when the product is not split or its buckets do not have that many units between them.
+     */
+    boolean reserve(UUID productId, BigInteger quantity);
+
+    /**
+     * Returns the units to one of the buckets of the product, returns false when this node does not know it as split.
+     */
+    boolean release(UUID productId, BigInteger quantity);
+
+    /**
+     * Whether this node last saw the product split, which may lag a split made by another node.
+     */
+    boolean isSplit(UUID productId);
+
+    /**
+     * Spreads the units an update of the product wrote to its row over its buckets, replacing the ones they held.
+     */
+    void restocked(UUID productId);
+
+    /**
+     * Gathers the units of the product back into its row and removes its buckets.
+     */
+    void merge(UUID productId);
+
+    /**
+     * Gathers the units of every split product back into their rows.
+     */
+    void mergeAll();
+
+    /**
+     * Evens out the buckets of every split product, moving the units released to their rows into them, and returns
+     * the number of split products.
+     */
+    int rebalance();
+}
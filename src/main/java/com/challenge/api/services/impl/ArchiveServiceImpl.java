@@ -0,0 +1,226 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.exceptions.ArchiveRunningException;
+import com.challenge.api.model.dto.ArchiveResult;
+import com.challenge.api.model.dto.ArchiveStatus;
+import com.challenge.api.repositories.OrderItemsRepository;
+import com.challenge.api.repositories.OrdersRepository;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.ArchiveService;
+import com.challenge.api.utils.UuidUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Soft-deleted rows are archived once they have been deleted for the configured age. A row deleted before the cutoff
+ * time was created before it too, and ids are time ordered, so only the rows below the smallest id of the cutoff time
+ * are looked at. Each table is walked in id order, one batch per transaction: the rows of a batch are copied to the
+ * archive table and deleted from the hot one, and the next batch starts after the last id of the previous one. Batches
+ * are paced to stay within the rows per second budget so the archiver does not compete with the API for the database.
+ * Scheduled and requested runs go to a thread of their own, so the pacing holds up neither the scheduler nor a request
+ * thread. Order items are deleted through the session, so only their own second-level cache entries are evicted rather
+ * than the whole region.
+ */
+@Slf4j
+@Service("archiveService")
+public class ArchiveServiceImpl implements ArchiveService {
+    private final OrdersRepository ordersRepository;
+    private final OrderItemsRepository orderItemsRepository;
+    private final ProductsRepository productsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int rowsPerSecond;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("archiver").daemon().factory());
+    private volatile ArchiveResult last;
+
+    private final Counter archivedOrders;
+    private final Counter archivedOrderItems;
+    private final Counter archivedProducts;
+    private final Timer batches;
+
+    @Autowired
+    public ArchiveServiceImpl(@Qualifier("ordersRepository") OrdersRepository ordersRepository,
+                              @Qualifier("orderItemsRepository") OrderItemsRepository orderItemsRepository,
+                              @Qualifier("productsRepository") ProductsRepository productsRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${archive.min-age:30d}") Duration minAge,
+                              @Value("${archive.batch-size:500}") int batchSize,
+                              @Value("${archive.rows-per-second:1000}") int rowsPerSecond) {
+        if (batchSize < 1 || rowsPerSecond < 1) {
+            throw new IllegalArgumentException("Archive batch size and rows per second must be greater than 0");
+        }
+
+        this.ordersRepository = ordersRepository;
+        this.orderItemsRepository = orderItemsRepository;
+        this.productsRepository = productsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.rowsPerSecond = rowsPerSecond;
+
+        this.archivedOrders = meterRegistry.counter("archive.rows", "table", "orders");
+        this.archivedOrderItems = meterRegistry.counter("archive.rows", "table", "order_items");
+        this.archivedProducts = meterRegistry.counter("archive.rows", "table", "products");
+        this.batches = meterRegistry.timer("archive.batch");
+    }
+
+    @Override
+    public ArchiveResult archive() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ArchiveRunningException();
+        }
+
+        try {
+            return run();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ArchiveResult> start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ArchiveRunningException();
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return run();
+                } finally {
+                    running.set(false);
+                }
+            }, executor).whenComplete((result, e) -> {
+                if (e == null) {
+                    log.info("Archived {}", result);
+                } else {
+                    log.warn("Archiving failed, retrying on the next run", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public ArchiveStatus status() {
+        return new ArchiveStatus(running.get(), last);
+    }
+
+    @Scheduled(fixedDelayString = "${archive.interval:1h}", initialDelayString = "${archive.interval:1h}")
+    public void archiveOnSchedule() {
+        try {
+            start();
+        } catch (ArchiveRunningException e) {
+            log.info("Skipping scheduled archiving: {}", e.getMessage());
+        }
+    }
+
+    // Interrupts the pacing of a running archive, the batch in progress is rolled back
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private ArchiveResult run() {
+        Instant cutoff = Instant.now().minus(minAge);
+        UUID before = UuidUtils.minV7(cutoff);
+        LocalDateTime deletedBefore = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        // Orders first, their items go with them and the products they referenced may become unreferenced
+        AtomicLong itemsOfOrders = new AtomicLong();
+        long orders = archiveTable(before, deletedBefore, ordersRepository::findInactiveIdsBetween, ids -> {
+            int items = orderItemsRepository.archiveAllByOrderIdIn(ids);
+            orderItemsRepository.deleteAll(orderItemsRepository.findAllByOrderIdIn(ids));
+            orderItemsRepository.flush();
+            itemsOfOrders.addAndGet(items);
+            archivedOrderItems.increment(items);
+            ordersRepository.archiveAllById(ids);
+            ordersRepository.deleteAllByIdIn(ids);
+        }, archivedOrders);
+        long orderItems = archiveTable(before, deletedBefore, orderItemsRepository::findInactiveIdsBetween, ids -> {
+            orderItemsRepository.archiveAllById(ids);
+            orderItemsRepository.deleteAll(orderItemsRepository.findAllByIdIn(ids));
+        }, archivedOrderItems);
+        long products = archiveTable(before, deletedBefore, productsRepository::findUnreferencedInactiveIdsBetween, ids -> {
+            productsRepository.archiveAllById(ids);
+            productsRepository.deleteAllByIdIn(ids);
+        }, archivedProducts);
+
+        last = new ArchiveResult(orders, itemsOfOrders.get() + orderItems, products);
+        return last;
+    }
+
+    private long archiveTable(UUID before, LocalDateTime deletedBefore, IdsBetween idsBetween,
+                              Consumer<List<UUID>> archive, Counter archived) {
+        long total = 0;
+        UUID after = new UUID(0, 0);
+        while (true) {
+            long start = System.nanoTime();
+            UUID from = after;
+            List<UUID> ids = transactionTemplate.execute(status -> {
+                List<UUID> batch = idsBetween.find(from, before, deletedBefore, Limit.of(batchSize));
+                if (!batch.isEmpty()) {
+                    archive.accept(batch);
+                }
+                return batch;
+            });
+            if (ids.isEmpty()) {
+                return total;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            batches.record(Duration.ofNanos(elapsed));
+            archived.increment(ids.size());
+            total += ids.size();
+            after = ids.getLast();
+            pace(ids.size(), elapsed);
+        }
+    }
+
+    // Waits until the batch has taken as long as its rows are allowed to at the configured rate
+    private void pace(int rows, long elapsedNanos) {
+        long budgetNanos = rows * 1_000_000_000L / rowsPerSecond;
+        if (budgetNanos > elapsedNanos) {
+            try {
+                Thread.sleep(Duration.ofNanos(budgetNanos - elapsedNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Archiving was interrupted", e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IdsBetween {
+        List<UUID> find(UUID after, UUID before, LocalDateTime deletedBefore, Limit limit);
+    }
+}
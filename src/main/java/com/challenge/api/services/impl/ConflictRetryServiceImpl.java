@@ -0,0 +1,154 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.model.dto.Contention;
+import com.challenge.api.services.ConflictRetryService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries back off for a random time up to an exponentially growing ceiling ("full jitter"), so the updates that
+ * conflicted on a row do not all come back at once. Every call earns a fraction of a retry in a shared budget holding
+ * at most retries.budget.reserve retries, and every retry spends one: when most updates conflict the budget runs out
+ * and conflicts fail fast instead of multiplying the writes hitting the contended rows.
+ */
+@Service("conflictRetryService")
+public class ConflictRetryServiceImpl implements ConflictRetryService {
+    // The budget is kept in thousandths of a retry so fractional earnings add up exactly
+    private static final long RETRY = 1000;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long earnedPerCall;
+    private final long budgetCapacity;
+    private final AtomicLong budget;
+    private final Cache<ContentionKey, LongAdder> contention;
+
+    @Autowired
+    public ConflictRetryServiceImpl(MeterRegistry meterRegistry,
+                                    @Value("${retries.max-attempts:5}") int maxAttempts,
+                                    @Value("${retries.initial-backoff:10ms}") Duration initialBackoff,
+                                    @Value("${retries.max-backoff:200ms}") Duration maxBackoff,
+                                    @Value("${retries.budget.ratio:0.2}") double budgetRatio,
+                                    @Value("${retries.budget.reserve:100}") int budgetReserve,
+                                    @Value("${retries.contention.maximum-size:10000}") long contentionSize) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Retry attempts must be greater than or equal to 1");
+        }
+
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Retry backoff must be positive and the maximum at least the initial one");
+        }
+
+        if (budgetRatio < 0 || budgetReserve < 0) {
+            throw new IllegalArgumentException("Retry budget ratio and reserve must be greater than or equal to 0");
+        }
+
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.earnedPerCall = Math.round(budgetRatio * RETRY);
+        this.budgetCapacity = budgetReserve * RETRY;
+        this.budget = new AtomicLong(budgetCapacity);
+        this.contention = Caffeine.newBuilder()
+                .maximumSize(contentionSize)
+                .build();
+
+        meterRegistry.gauge("optimistic.retries.budget", budget, remaining -> (double) remaining.get() / RETRY);
+    }
+
+    @Override
+    public <T> T execute(String scope, String key, Callable<T> action) throws Exception {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.call();
+        }
+
+        earn();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.call();
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter("optimistic.conflicts", "scope", scope).increment();
+                if (StringUtils.hasText(key)) {
+                    contention.get(new ContentionKey(scope, key), k -> new LongAdder()).increment();
+                }
+
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("optimistic.retries.exhausted", "scope", scope, "reason", "attempts").increment();
+                    throw e;
+                }
+
+                if (!spend()) {
+                    meterRegistry.counter("optimistic.retries.exhausted", "scope", scope, "reason", "budget").increment();
+                    throw e;
+                }
+
+                meterRegistry.counter("optimistic.retries", "scope", scope).increment();
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    @Override
+    public List<Contention> mostContended(String scope, int limit) {
+        if (!StringUtils.hasText(scope)) {
+            throw new IllegalArgumentException("Scope cannot be null or empty");
+        }
+
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("Limit must be between 1 and 1000");
+        }
+
+        return contention.asMap().entrySet().stream()
+                .filter(entry -> entry.getKey().scope().equals(scope))
+                .map(entry -> new Contention(scope, entry.getKey().key(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(Contention::conflicts).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private void earn() {
+        budget.accumulateAndGet(earnedPerCall, (remaining, earned) -> Math.min(budgetCapacity, remaining + earned));
+    }
+
+    private boolean spend() {
+        long remaining;
+        do {
+            remaining = budget.get();
+            if (remaining < RETRY) {
+                return false;
+            }
+        } while (!budget.compareAndSet(remaining, remaining - RETRY));
+        return true;
+    }
+
+    private void backOff(int attempt, OptimisticLockingFailureException conflict) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private record ContentionKey(String scope, String key) {
+    }
+}
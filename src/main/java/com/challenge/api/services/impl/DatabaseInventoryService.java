@@ -0,0 +1,143 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.model.dto.ProductStock;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.ProductInvalidationBus;
+import com.challenge.api.services.StockBucketService;
+import com.challenge.api.utils.UuidUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reserves with a guarded update of the product row, which holds its lock until the reserving transaction ends, or of
+ * one of the stock buckets of a product split to spread that lock over several rows.
+ */
+@Service("inventoryService")
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventoryService implements InventoryService {
+    private final ProductsRepository productsRepository;
+    private final ProductInvalidationBus productInvalidationBus;
+    private final StockBucketService stockBucketService;
+
+    @Autowired
+    public DatabaseInventoryService(@Qualifier("productsRepository") ProductsRepository productsRepository,
+                                    @Qualifier("productInvalidationBus") ProductInvalidationBus productInvalidationBus,
+                                    @Qualifier("stockBucketService") StockBucketService stockBucketService) {
+        this.productsRepository = productsRepository;
+        this.productInvalidationBus = productInvalidationBus;
+        this.stockBucketService = stockBucketService;
+    }
+
+    // Which of the two this node tries first may be stale, the other one is tried when it misses: products split or
+    // merged by another node, or before a restart, are found in the buckets or the row either way
+    @Override
+    public boolean reserve(UUID productId, BigInteger quantity) {
+        boolean reserved = stockBucketService.isSplit(productId)
+                ? stockBucketService.reserve(productId, quantity) || reserveRow(productId, quantity)
+                : reserveRow(productId, quantity) || stockBucketService.reserve(productId, quantity);
+        if (!reserved) {
+            return false;
+        }
+        productInvalidationBus.publish(productId);
+        return true;
+    }
+
+    /**
+     * Locks the rows of the products not known as split with one select in id order and checks all of them before
+     * writing any, so a product short of units leaves nothing to undo. Products split, or short on their row because
+     * another node split them, are then taken from their buckets in id order and given back if one of them cannot be.
+     */
+    @Override
+    public Optional<UUID> reserveAll(Map<UUID, BigInteger> quantities) {
+        Map<UUID, BigInteger> rows = new TreeMap<>(UuidUtils.DATABASE_ORDER);
+        Map<UUID, BigInteger> buckets = new TreeMap<>(UuidUtils.DATABASE_ORDER);
+        Set<UUID> shortRows = new HashSet<>();
+        quantities.forEach((productId, quantity) ->
+                (stockBucketService.isSplit(productId) ? buckets : rows).put(productId, quantity));
+
+        if (!rows.isEmpty()) {
+            Map<UUID, ProductStock> stocks = productsRepository.findAllStockForUpdate(rows.keySet())
+                    .stream()
+                    .collect(Collectors.toMap(ProductStock::productId, Function.identity()));
+            for (Iterator<Map.Entry<UUID, BigInteger>> iterator = rows.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<UUID, BigInteger> entry = iterator.next();
+                ProductStock stock = stocks.get(entry.getKey());
+                if (stock == null || !stock.active()) {
+                    return Optional.of(entry.getKey());
+                }
+                if (stock.onHand().compareTo(entry.getValue()) < 0) {
+                    buckets.put(entry.getKey(), entry.getValue());
+                    shortRows.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+
+        Map<UUID, BigInteger> taken = new LinkedHashMap<>();
+        for (Map.Entry<UUID, BigInteger> entry : buckets.entrySet()) {
+            // A product merged by another node is no longer split once its buckets are found gone, its row is tried then
+            if (!stockBucketService.reserve(entry.getKey(), entry.getValue())
+                    && (shortRows.contains(entry.getKey()) || stockBucketService.isSplit(entry.getKey())
+                    || !reserveRow(entry.getKey(), entry.getValue()))) {
+                taken.forEach(this::release);
+                return Optional.of(entry.getKey());
+            }
+            taken.put(entry.getKey(), entry.getValue());
+        }
+
+        // Cannot miss, the rows are locked and were checked
+        rows.forEach((productId, quantity) -> {
+            if (productsRepository.reserveStock(productId, quantity) != 1) {
+                throw new IllegalStateException("Stock of locked product " + productId + " changed");
+            }
+        });
+        quantities.keySet().forEach(productInvalidationBus::publish);
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<UUID, BigInteger> available(Collection<UUID> productIds) {
+        return productsRepository.findAllAvailableStock(productIds)
+                .stream()
+                .collect(Collectors.toMap(ProductStock::productId, ProductStock::onHand));
+    }
+
+    private boolean reserveRow(UUID productId, BigInteger quantity) {
+        return productsRepository.reserveStock(productId, quantity) == 1;
+    }
+
+    @Override
+    public void release(UUID productId, BigInteger quantity) {
+        if (!stockBucketService.isSplit(productId) || !stockBucketService.release(productId, quantity)) {
+            productsRepository.releaseStock(productId, quantity);
+        }
+        productInvalidationBus.publish(productId);
+    }
+
+    @Override
+    public void restocked(UUID productId, BigInteger onHand) {
+        stockBucketService.restocked(productId);
+    }
+
+    // Deleted products keep their units in their row, where the archiver finds them
+    @Override
+    public void retired(UUID productId) {
+        stockBucketService.merge(productId);
+    }
+}
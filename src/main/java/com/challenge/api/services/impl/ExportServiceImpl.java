@@ -0,0 +1,132 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.model.dto.OrderRow;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.repositories.OrdersRepository;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.ExportFormat;
+import com.challenge.api.services.ExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Rows go straight from the database cursor to the output through a fixed size buffer,
+ * so the heap used by an export does not depend on the number of rows.
+ */
+@Service("exportService")
+public class ExportServiceImpl implements ExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final List<String> ORDER_COLUMNS = List.of("order_id", "customer_name", "total",
+            "item_id", "product_id", "product_name", "price", "quantity");
+    private static final List<String> PRODUCT_COLUMNS = List.of("id", "name", "description", "on_hand", "unit_price");
+
+    private final OrdersRepository ordersRepository;
+    private final ProductsRepository productsRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ExportServiceImpl(@Qualifier("ordersRepository") OrdersRepository ordersRepository,
+                             @Qualifier("productsRepository") ProductsRepository productsRepository,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.ordersRepository = ordersRepository;
+        this.productsRepository = productsRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Postgres only reads a result set in fetch-size chunks when it is not in auto-commit mode
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void exportOrders(ExportFormat format, OutputStream output) throws IOException {
+        export(format, output, ORDER_COLUMNS, ordersRepository::streamActiveRows, row -> new Object[]{
+                row.orderId(), row.customerName(), row.total().setScale(2),
+                row.itemId(), row.productId(), row.productName(), row.price(), row.quantity()});
+    }
+
+    @Override
+    public void exportProducts(ExportFormat format, OutputStream output) throws IOException {
+        export(format, output, PRODUCT_COLUMNS, productsRepository::streamActiveAsDto, product -> new Object[]{
+                product.getId(), product.getName(), product.getDescription(), product.getOnHand(), product.getUnitPrice()});
+    }
+
+    private <T> void export(ExportFormat format, OutputStream output, List<String> columns,
+                            Supplier<Stream<T>> rows, Function<T, Object[]> values) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<T> stream = rows.get()) {
+                    if (format == ExportFormat.CSV) {
+                        writeCsv(writer, columns, stream.iterator(), values);
+                    } else {
+                        writeNdjson(writer, stream.iterator());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static <T> void writeCsv(Writer writer, List<String> columns, Iterator<T> rows,
+                                     Function<T, Object[]> values) throws IOException {
+        writer.write(String.join(",", columns));
+        writer.write("\r\n");
+        while (rows.hasNext()) {
+            Object[] row = values.apply(rows.next());
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(row[i]));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    private <T> void writeNdjson(Writer writer, Iterator<T> rows) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        // Leaves the writer open, it is flushed once the whole export is written
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (rows.hasNext()) {
+            generator.writeObject(rows.next());
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    // RFC 4180: fields with separators, quotes or line breaks are quoted and their quotes doubled
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+
+        String text = value.toString();
+        if (text.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,194 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.model.dao.IdempotencyKeyDAO;
+import com.challenge.api.repositories.IdempotencyKeysRepository;
+import com.challenge.api.services.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Replays are answered from a bounded in-memory cache and, when the key is not cached on this node, from the
+ * idempotency_keys table, so they never reach the products or the order pipeline. The key is inserted before the
+ * action runs, in its transaction, so a concurrent duplicate waits on the key instead of reserving stock itself.
+ */
+@Service("idempotencyService")
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeysRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> cache;
+    private final Counter cacheReplays;
+    private final Counter databaseReplays;
+
+    @Autowired
+    public IdempotencyServiceImpl(@Qualifier("idempotencyKeysRepository") IdempotencyKeysRepository repository,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${idempotency.cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${idempotency.ttl:24h}") Duration ttl) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+        this.cacheReplays = meterRegistry.counter("idempotency.replays", "source", "cache");
+        this.databaseReplays = meterRegistry.counter("idempotency.replays", "source", "database");
+    }
+
+    @Override
+    public <T> T execute(String scope, String key, Object request, Class<T> responseType, Callable<T> action) throws Exception {
+        if (key == null) {
+            return action.call();
+        }
+
+        if (!StringUtils.hasText(key) || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = scope + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse cached = cache.getIfPresent(id);
+        if (cached != null) {
+            cacheReplays.increment();
+            return replay(cached, requestHash, responseType);
+        }
+
+        StoredResponse stored = find(id);
+        if (stored != null) {
+            databaseReplays.increment();
+            return replay(stored, requestHash, responseType);
+        }
+
+        StoredResponse[] created = new StoredResponse[1];
+        T response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                IdempotencyKeyDAO idempotencyKey = repository.saveAndFlush(
+                        new IdempotencyKeyDAO(id, requestHash, LocalDateTime.now()));
+                T result = call(action);
+                idempotencyKey.setResponse(write(result));
+                created[0] = new StoredResponse(requestHash, idempotencyKey.getResponse());
+                return result;
+            });
+        } catch (ActionFailedException e) {
+            throw e.getCause();
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same key committed first
+            StoredResponse winner = find(id);
+            if (winner == null) {
+                throw e;
+            }
+            databaseReplays.increment();
+            return replay(winner, requestHash, responseType);
+        }
+
+        cache.put(id, created[0]);
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:1h}", initialDelayString = "${idempotency.purge-interval:1h}")
+    public void purgeExpiredKeys() {
+        transactionTemplate.executeWithoutResult(status ->
+                repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl)));
+    }
+
+    // Keys past the ttl that the purge has not removed yet are deleted instead, so the request runs again
+    private StoredResponse find(String id) {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(ttl);
+        Optional<IdempotencyKeyDAO> idempotencyKey = repository.findById(id);
+        if (idempotencyKey.isPresent() && idempotencyKey.get().getCreatedAt().isBefore(expiredBefore)) {
+            transactionTemplate.executeWithoutResult(status -> repository.deleteByIdCreatedBefore(id, expiredBefore));
+            return null;
+        }
+
+        StoredResponse stored = idempotencyKey
+                .map(key -> new StoredResponse(key.getRequestHash(), key.getResponse()))
+                .orElse(null);
+        if (stored != null) {
+            cache.put(id, stored);
+        }
+        return stored;
+    }
+
+    private <T> T replay(StoredResponse stored, String requestHash, Class<T> responseType) throws JsonProcessingException {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+        return objectMapper.readValue(stored.response(), responseType);
+    }
+
+    private String hash(Object request) throws JsonProcessingException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T call(Callable<T> action) {
+        try {
+            return action.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ActionFailedException(e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, String response) {
+    }
+
+    // Carries checked exceptions of the action out of the transaction callback, rolling it back
+    private static final class ActionFailedException extends RuntimeException {
+        private ActionFailedException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+}
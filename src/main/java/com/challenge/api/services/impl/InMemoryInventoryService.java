@@ -0,0 +1,382 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.ProductInvalidationBus;
+import com.challenge.api.services.StockBucketService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps one counter of available units per product, loaded from the product row the first time it is reserved, so
+ * reservations of the same product contend on a compare-and-set instead of on the product row. Units are taken from
+ * the counter when reserved and given back if the transaction rolls back, while released units are only returned
+ * once committed, so the counter never offers units a running transaction may still take back.
+ * <p>
+ * Committed movements are written behind: every flush interval, or as soon as the batch size of movements is reached,
+ * each changed product gets one update setting on_hand to its committed count and adding the units reserved since the
+ * previous flush to reserved_units. Their sum only changes on restocks, so on startup the units of active order items
+ * and reservations that a crash kept from being flushed are taken out of on_hand again. The counters are the source of truth for
+ * reservations, on_hand lags them by up to a flush and only one node may run this engine against a database.
+ */
+@Slf4j
+@Service("inventoryService")
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "memory")
+public class InMemoryInventoryService implements InventoryService {
+    private final ProductsRepository productsRepository;
+    private final ProductInvalidationBus productInvalidationBus;
+    private final StockBucketService stockBucketService;
+    private final Executor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+
+    private final Map<UUID, Stock> stocks = new ConcurrentHashMap<>();
+    private final Set<UUID> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger unflushedMovements = new AtomicInteger();
+    private final ReentrantLock flushing = new ReentrantLock();
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter flushedProducts;
+    private final Timer flushes;
+
+    @Autowired
+    public InMemoryInventoryService(@Qualifier("productsRepository") ProductsRepository productsRepository,
+                                    @Qualifier("productInvalidationBus") ProductInvalidationBus productInvalidationBus,
+                                    @Qualifier("stockBucketService") StockBucketService stockBucketService,
+                                    @Qualifier("asyncExecutor") Executor executor,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${inventory.flush-batch-size:1000}") int flushBatchSize) {
+        if (flushBatchSize < 1) {
+            throw new IllegalArgumentException("Inventory flush batch size must be greater than or equal to 1");
+        }
+
+        this.productsRepository = productsRepository;
+        this.productInvalidationBus = productInvalidationBus;
+        this.stockBucketService = stockBucketService;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushBatchSize = flushBatchSize;
+
+        this.accepted = meterRegistry.counter("inventory.reservations", "result", "accepted");
+        this.rejected = meterRegistry.counter("inventory.reservations", "result", "rejected");
+        this.flushedProducts = meterRegistry.counter("inventory.flushed.products");
+        this.flushes = meterRegistry.timer("inventory.flush");
+    }
+
+    /**
+     * Gathers the units of products split by the database engine back into their rows, takes the units of active order
+     * items and reservations that the last flushes of a previous run missed out of on_hand and returns the ones of items
+     * and reservations gone since, then forgets the counters so they are loaded again.
+     */
+    @PostConstruct
+    public void recover() {
+        stocks.clear();
+        changed.clear();
+        stockBucketService.mergeAll();
+        int reconciled = transactionTemplate.execute(status -> productsRepository.reconcileReservedUnits());
+        if (reconciled > 0) {
+            log.warn("Rebuilt on hand of {} products from their active order items and reservations", reconciled);
+        }
+    }
+
+    @Override
+    public boolean reserve(UUID productId, BigInteger quantity) {
+        return reserveAll(Map.of(productId, quantity)).isEmpty();
+    }
+
+    // Counters are not locked, so order does not matter, but units taken before a product that is short are given back
+    // at once instead of being held until the transaction rolls back
+    @Override
+    public Optional<UUID> reserveAll(Map<UUID, BigInteger> quantities) {
+        List<Taken> taken = new ArrayList<>(quantities.size());
+        for (Map.Entry<UUID, BigInteger> entry : quantities.entrySet()) {
+            long units = entry.getValue().longValueExact();
+            Stock stock = stock(entry.getKey());
+            if (stock == null || !stock.take(units)) {
+                taken.forEach(reserved -> reserved.stock().available.addAndGet(reserved.units()));
+                rejected.increment();
+                return Optional.of(entry.getKey());
+            }
+            taken.add(new Taken(entry.getKey(), stock, units));
+        }
+
+        accepted.increment(taken.size());
+        afterCompletion(status -> taken.forEach(reserved -> {
+            if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
+                reserved.stock().available.addAndGet(reserved.units());
+            } else {
+                reserved.stock().committed(reserved.units());
+                changed(reserved.productId());
+            }
+        }));
+        return Optional.empty();
+    }
+
+    // From the counters, on_hand lags them by up to a flush
+    @Override
+    public Map<UUID, BigInteger> available(Collection<UUID> productIds) {
+        Map<UUID, BigInteger> available = new HashMap<>();
+        for (UUID productId : productIds) {
+            Stock stock = stock(productId);
+            if (stock != null && stock.active) {
+                available.put(productId, BigInteger.valueOf(stock.available.get()));
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void release(UUID productId, BigInteger quantity) {
+        long units = quantity.longValueExact();
+        Stock stock = stock(productId);
+        if (stock == null) {
+            return;
+        }
+
+        afterCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                stock.available.addAndGet(units);
+                stock.committed(-units);
+                changed(productId);
+            }
+        });
+    }
+
+    // The update already wrote on_hand, reserved_units gets the units reserved until now in the same transaction
+    @Override
+    public void restocked(UUID productId, BigInteger onHand) {
+        Stock stock = stocks.get(productId);
+        if (stock == null) {
+            return;
+        }
+
+        long reserved = stock.takeUnflushed();
+        if (reserved != 0) {
+            productsRepository.addReservedUnits(productId, BigInteger.valueOf(reserved));
+        }
+        afterCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                stock.restock(onHand.longValueExact());
+            } else {
+                stock.unflushed(reserved);
+            }
+            changed(productId);
+        });
+    }
+
+    @Override
+    public void retired(UUID productId) {
+        Stock stock = stocks.get(productId);
+        if (stock != null) {
+            afterCompletion(status -> {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    stock.active = false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the committed movements of every changed product with one update per product and returns the number of
+     * products written. Returns 0 without waiting when another flush is running.
+     */
+    public int flush() {
+        if (!flushing.tryLock()) {
+            return 0;
+        }
+
+        try {
+            unflushedMovements.set(0);
+            Map<UUID, Snapshot> writes = new HashMap<>();
+            for (Iterator<UUID> iterator = changed.iterator(); iterator.hasNext(); ) {
+                UUID productId = iterator.next();
+                iterator.remove();
+                writes.put(productId, stocks.get(productId).snapshot());
+            }
+            if (writes.isEmpty()) {
+                return 0;
+            }
+
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> writes.forEach((productId, write) ->
+                        productsRepository.writeStock(productId, BigInteger.valueOf(write.onHand()),
+                                BigInteger.valueOf(write.reserved()))));
+            } catch (RuntimeException e) {
+                // Keep the reserved units for the next flush, on_hand is written from the counter again anyway
+                writes.forEach((productId, write) -> {
+                    stocks.get(productId).unflushed(write.reserved());
+                    changed.add(productId);
+                });
+                throw e;
+            }
+
+            flushes.record(Duration.ofNanos(System.nanoTime() - start));
+            flushedProducts.increment(writes.size());
+            writes.keySet().forEach(productInvalidationBus::publish);
+            return writes.size();
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.flush-interval:100ms}")
+    public void flushOnSchedule() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Flushing the inventory failed, retrying on the next flush", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flushing.lock();
+        try {
+            flush();
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    // Loaded outside the map, whose bin lock would otherwise hold up every product hashed next to this one for the
+    // length of the query. Of two concurrent loads the first one in is kept.
+    private Stock stock(UUID productId) {
+        Stock stock = stocks.get(productId);
+        if (stock != null) {
+            return stock;
+        }
+
+        Stock loaded = productsRepository.findStockById(productId)
+                .map(product -> new Stock(product.onHand().longValueExact(), product.active()))
+                .orElse(null);
+        if (loaded == null) {
+            return null;
+        }
+        Stock existing = stocks.putIfAbsent(productId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void changed(UUID productId) {
+        changed.add(productId);
+        if (unflushedMovements.incrementAndGet() == flushBatchSize) {
+            try {
+                executor.execute(this::flushOnSchedule);
+            } catch (RejectedExecutionException e) {
+                log.debug("Inventory flush left to the next interval: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Runs the action with the outcome of the current transaction, or as committed when there is none
+    private static void afterCompletion(IntConsumer action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(TransactionSynchronization.STATUS_COMMITTED);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status);
+            }
+        });
+    }
+
+    private record Snapshot(long onHand, long reserved) {
+    }
+
+    private record Taken(UUID productId, Stock stock, long units) {
+    }
+
+    private static final class Stock {
+        // Net of the reservations of running transactions, the only field reservations contend on
+        private final AtomicLong available;
+        // Units on hand and reserved since the last flush as of the committed transactions, written together
+        private long committed;
+        private long unflushed;
+        private volatile boolean active;
+
+        private Stock(long onHand, boolean active) {
+            this.available = new AtomicLong(onHand);
+            this.committed = onHand;
+            this.active = active;
+        }
+
+        private boolean take(long units) {
+            long current;
+            do {
+                current = available.get();
+                if (!active || current < units) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - units));
+            return true;
+        }
+
+        private synchronized void committed(long reserved) {
+            committed -= reserved;
+            unflushed += reserved;
+        }
+
+        private synchronized void unflushed(long reserved) {
+            unflushed += reserved;
+        }
+
+        private synchronized long takeUnflushed() {
+            long reserved = unflushed;
+            unflushed = 0;
+            return reserved;
+        }
+
+        private synchronized Snapshot snapshot() {
+            Snapshot snapshot = new Snapshot(committed, unflushed);
+            unflushed = 0;
+            return snapshot;
+        }
+
+        private void restock(long onHand) {
+            long added;
+            synchronized (this) {
+                added = onHand - committed;
+                committed = onHand;
+            }
+            available.addAndGet(added);
+        }
+    }
+}
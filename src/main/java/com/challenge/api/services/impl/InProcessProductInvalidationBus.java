@@ -0,0 +1,43 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.services.ProductInvalidationBus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations to listeners of this node only. Inside a transaction they are delivered
+ * right away and again once it completes, so a copy read in between is not kept after the commit.
+ */
+@Service("productInvalidationBus")
+public class InProcessProductInvalidationBus implements ProductInvalidationBus {
+    private final List<Consumer<UUID>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(UUID productId) {
+        deliver(productId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    deliver(productId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<UUID> listener) {
+        listeners.add(listener);
+    }
+
+    private void deliver(UUID productId) {
+        listeners.forEach(listener -> listener.accept(productId));
+    }
+}
@@ -0,0 +1,241 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderBatchResult;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.repositories.OrderItemsRepository;
+import com.challenge.api.repositories.OrdersRepository;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.OrderBatchService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the batch line by line and creates its orders in chunks, so only one chunk is held in memory at a time.
+ * Each chunk loads its products once, reserves the stock of all its orders at once, locking the products in id order,
+ * and inserts the orders in JDBC batches, all in one transaction.
+ */
+@Service("orderBatchService")
+public class OrderBatchServiceImpl implements OrderBatchService {
+    private final OrdersRepository repository;
+    private final OrderItemsRepository orderItemsRepository;
+    private final ProductsRepository productsRepository;
+    private final CrudService<OrderRequest, OrderResponse, String> ordersService;
+    private final InventoryService inventoryService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public OrderBatchServiceImpl(@Qualifier("ordersRepository") OrdersRepository repository,
+                                 @Qualifier("orderItemsRepository") OrderItemsRepository orderItemsRepository,
+                                 @Qualifier("productsRepository") ProductsRepository productsRepository,
+                                 @Qualifier("ordersService") CrudService<OrderRequest, OrderResponse, String> ordersService,
+                                 @Qualifier("inventoryService") InventoryService inventoryService,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${orders.batch.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Batch chunk size must be greater than or equal to 1");
+        }
+
+        this.repository = repository;
+        this.orderItemsRepository = orderItemsRepository;
+        this.productsRepository = productsRepository;
+        this.ordersService = ordersService;
+        this.inventoryService = inventoryService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void ingest(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        long number = 0;
+
+        String text;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (!StringUtils.hasText(text)) {
+                continue;
+            }
+
+            chunk.add(new Line(number, text));
+            if (chunk.size() == chunkSize) {
+                write(process(chunk), output);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            write(process(chunk), output);
+        }
+    }
+
+    private List<OrderBatchResult> process(List<Line> chunk) {
+        Map<Line, OrderBatchResult> results = new LinkedHashMap<>();
+        List<Pending> pending = new ArrayList<>();
+        for (Line line : chunk) {
+            // Keeps the results in the order of the lines
+            results.put(line, null);
+            try {
+                OrderRequest request = objectMapper.readValue(line.text(), OrderRequest.class);
+                OrdersService.validate(request);
+                pending.add(new Pending(line, request, OrdersService.quantitiesByProduct(request.getItems())));
+            } catch (Exception e) {
+                results.put(line, failed(line, e));
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try {
+                results.putAll(transactionTemplate.execute(status -> createAll(pending)));
+            } catch (RuntimeException e) {
+                // Stock changed between the lookup and the reservation, or a write failed: create the orders
+                // one by one so only the orders that cannot be created are reported
+                for (Pending order : pending) {
+                    results.put(order.line(), createOne(order));
+                }
+            }
+        }
+
+        return new ArrayList<>(results.values());
+    }
+
+    private Map<Line, OrderBatchResult> createAll(List<Pending> pending) {
+        Set<UUID> productIds = pending.stream()
+                .flatMap(order -> order.quantitiesByProduct().keySet().stream())
+                .collect(Collectors.toSet());
+        Map<UUID, ProductDAO> productsById = productsRepository.findAllById(productIds)
+                .stream()
+                .collect(Collectors.toMap(ProductDAO::getId, Function.identity()));
+
+        Map<Line, OrderBatchResult> results = new HashMap<>();
+        Map<UUID, BigInteger> available = new HashMap<>(inventoryService.available(productsById.keySet()));
+        Map<UUID, BigInteger> reserved = new LinkedHashMap<>();
+        Map<Line, OrderDAO> orders = new LinkedHashMap<>();
+        for (Pending order : pending) {
+            try {
+                checkStock(order.quantitiesByProduct(), productsById, available);
+            } catch (EntityNotFoundException | OutOfStockException e) {
+                results.put(order.line(), failed(order.line(), e));
+                continue;
+            }
+
+            order.quantitiesByProduct().forEach((productId, quantity) -> {
+                available.merge(productId, BigInteger.valueOf(quantity), BigInteger::subtract);
+                reserved.merge(productId, BigInteger.valueOf(quantity), BigInteger::add);
+            });
+            orders.put(order.line(), OrdersService.newOrder(order.request(), productsById));
+        }
+
+        inventoryService.reserveAll(reserved).ifPresent(productId -> {
+            throw new IllegalStateException("Stock of product " + productId + " changed during the batch");
+        });
+
+        repository.saveAll(orders.values());
+        orderItemsRepository.saveAll(orders.values().stream().flatMap(order -> order.getItems().stream()).toList());
+        orderItemsRepository.flush();
+
+        orders.forEach((line, order) -> results.put(line, new OrderBatchResult(line.number(), order.getId().toString(), null, null)));
+        return results;
+    }
+
+    // Answers the same as OrdersService.create would for this order, given the units the inventory engine had
+    // available for the chunk and the ones already taken by its earlier orders
+    private static void checkStock(Map<UUID, Integer> quantitiesByProduct, Map<UUID, ProductDAO> productsById,
+                                   Map<UUID, BigInteger> available) throws OutOfStockException {
+        for (UUID productId : quantitiesByProduct.keySet()) {
+            if (!productsById.containsKey(productId)) {
+                throw new EntityNotFoundException("Product with id " + productId + " not found");
+            }
+        }
+
+        for (Map.Entry<UUID, Integer> entry : quantitiesByProduct.entrySet()) {
+            BigInteger units = available.getOrDefault(entry.getKey(), BigInteger.ZERO);
+            if (units.compareTo(BigInteger.valueOf(entry.getValue())) < 0) {
+                throw new OutOfStockException(entry.getKey().toString());
+            }
+        }
+    }
+
+    private OrderBatchResult createOne(Pending order) {
+        try {
+            return new OrderBatchResult(order.line().number(), ordersService.create(order.request()).getId(), null, null);
+        } catch (Exception e) {
+            return failed(order.line(), e);
+        }
+    }
+
+    private void write(List<OrderBatchResult> results, OutputStream output) throws IOException {
+        for (OrderBatchResult result : results) {
+            output.write(objectMapper.writeValueAsBytes(result));
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    // Same statuses as ApiExceptionHandler
+    private static OrderBatchResult failed(Line line, Exception e) {
+        Exception failure = e.getCause() instanceof ConstraintViolationException violation ? violation : e;
+        HttpStatus status = switch (failure) {
+            case JsonProcessingException ignored -> HttpStatus.BAD_REQUEST;
+            case IllegalArgumentException ignored -> HttpStatus.BAD_REQUEST;
+            case ConstraintViolationException ignored -> HttpStatus.BAD_REQUEST;
+            case EntityNotFoundException ignored -> HttpStatus.NOT_FOUND;
+            case OutOfStockException ignored -> HttpStatus.CONFLICT;
+            case OptimisticLockingFailureException ignored -> HttpStatus.CONFLICT;
+            default -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+        String message = switch (failure) {
+            case JsonProcessingException json -> json.getOriginalMessage();
+            case ConstraintViolationException violation -> violation.getConstraintViolations().stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining(", "));
+            default -> failure.getMessage();
+        };
+        return new OrderBatchResult(line.number(), null, status.value(), message);
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record Pending(Line line, OrderRequest request, Map<UUID, Integer> quantitiesByProduct) {
+    }
+}
@@ -1,56 +1,85 @@
 package com.challenge.api.services.impl;
 
+import com.challenge.api.utils.CursorUtils;
 import com.challenge.api.utils.MapperUtils;
+import com.challenge.api.utils.UuidUtils;
 import com.challenge.api.exceptions.OutOfStockException;
 import com.challenge.api.model.dao.OrderDAO;
 import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dto.CursorPage;
 import com.challenge.api.model.dto.OrderItemRequest;
 import com.challenge.api.model.dto.OrderItemResponse;
 import com.challenge.api.model.dto.Product;
-import com.challenge.api.repositories.ExtendedCrudRepository;
+import com.challenge.api.repositories.OrderItemsRepository;
+import com.challenge.api.repositories.OrdersRepository;
 import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
 import com.challenge.api.services.OrderTotalService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 
 @Service("orderItemsService")
 public class OrderItemsService implements CrudService<OrderItemRequest, OrderItemResponse, String> {
 
-    private final ExtendedCrudRepository<OrderItemDAO, String> repository;
-    private final ExtendedCrudRepository<OrderDAO, String> ordersRepository;
+    private final OrderItemsRepository repository;
+    private final OrdersRepository ordersRepository;
     private final CrudService<Product, Product, String> productService;
+    private final InventoryService inventoryService;
     private final OrderTotalService orderTotalService;
 
     @Autowired
-    public OrderItemsService(@Qualifier("orderItemsRepository") ExtendedCrudRepository<OrderItemDAO, String> repository,
-                             @Qualifier("ordersRepository") ExtendedCrudRepository<OrderDAO, String> ordersRepository,
+    public OrderItemsService(@Qualifier("orderItemsRepository") OrderItemsRepository repository,
+                             @Qualifier("ordersRepository") OrdersRepository ordersRepository,
                              @Qualifier("productsService") CrudService<Product, Product, String> productService,
+                             @Qualifier("inventoryService") InventoryService inventoryService,
                              @Qualifier("orderTotalService") OrderTotalService orderTotalService) {
         this.repository = repository;
         this.ordersRepository = ordersRepository;
         this.productService = productService;
+        this.inventoryService = inventoryService;
         this.orderTotalService = orderTotalService;
     }
 
     @Override
     public Page<OrderItemResponse> getAll(Pageable pageable) {
-        return repository.findAll(pageable)
-                .map(MapperUtils::map);
+        return repository.findAllAsDto(pageable);
+    }
+
+    @Override
+    public CursorPage<OrderItemResponse> getAll(String cursor, int size) {
+        CursorUtils.validateSize(size);
+        UUID after = CursorUtils.decode(cursor);
+        List<OrderItemResponse> orderItems = after == null
+                ? repository.findFirstActiveAsDto(Limit.of(size + 1))
+                : repository.findActiveAsDtoAfter(after, Limit.of(size + 1));
+
+        return CursorUtils.toPage(orderItems, size, OrderItemResponse::getId, Function.identity());
     }
 
     @Override
     public OrderItemResponse getById(String id) {
-        return MapperUtils.map(getOrderItemFromDatabase(id));
+        validateId(id);
+        return UuidUtils.parse(id)
+                .flatMap(repository::findAsDtoById)
+                .orElseThrow(() -> new EntityNotFoundException("Order Item does not exist"));
     }
 
+    // Totals are adjusted by the item's subtotal so the response reflects the change, then recalculated from the
+    // committed items through the outbox, which corrects deltas lost to concurrent changes of the same order
     @Override
     @Transactional(rollbackOn = OutOfStockException.class)
     public OrderItemResponse create(OrderItemRequest request) throws Exception {
@@ -62,74 +91,58 @@ public class OrderItemsService implements CrudService<OrderItemRequest, OrderIte
             throw new IllegalArgumentException("Order ID cannot be null or empty");
         }
 
-        if (!ordersRepository.existsById(request.getOrderId())) {
-            throw new EntityNotFoundException("Order does not exist");
-        }
-
+        UUID orderId = findOrderId(request.getOrderId());
+        validateQuantity(request.getQuantity());
+        reserveStock(request.getProductId(), request.getQuantity());
         Product product = productService.getById(request.getProductId());
 
-        if (product.getOnHand() < request.getQuantity()) {
-            throw new OutOfStockException(request.getProductId());
-        }
-
         OrderItemDAO dao = new OrderItemDAO();
-        dao.setOrder(new OrderDAO(request.getOrderId()));
+        dao.setOrder(new OrderDAO(orderId));
         dao.setProduct(MapperUtils.map(product));
         dao.setQuantity(BigInteger.valueOf(request.getQuantity()));
         dao.setActive(true);
         dao.setUnitPrice(product.getUnitPrice());
 
-        product.setOnHand(product.getOnHand() - request.getQuantity());
-        productService.update(request.getProductId(), product);
-
         dao = repository.saveAndFlush(dao);
-        orderTotalService.calculateTotalAsync(request.getOrderId());
+        ordersRepository.addToTotal(orderId, subtotal(dao));
+        orderTotalService.recalculateTotal(orderId);
         return MapperUtils.map(dao);
     }
 
     @Override
     @Transactional(rollbackOn = OutOfStockException.class)
     public OrderItemResponse update(String id, OrderItemRequest request) throws Exception {
-        String  oldOrderId;
-        Integer oldQuantity;
-        Product oldProduct;
-
         if (request == null) {
             throw new IllegalArgumentException("OrderItemRequest cannot be null");
         }
 
         OrderItemDAO existingOrderItem = getOrderItemFromDatabase(id);
 
-        if (!StringUtils.hasText(request.getOrderId()) || !ordersRepository.existsById(request.getOrderId())) {
-            throw new EntityNotFoundException("Order does not exist");
-        }
-
-        oldOrderId  = existingOrderItem.getOrder().getId();
-        oldQuantity = existingOrderItem.getQuantity().intValue();
-        oldProduct  = MapperUtils.map(existingOrderItem.getProduct());
-        oldProduct.setOnHand(oldProduct.getOnHand() + oldQuantity);
+        UUID orderId = findOrderId(request.getOrderId());
+        validateQuantity(request.getQuantity());
 
-        productService.update(oldProduct.getId(), oldProduct);
+        UUID oldOrderId = existingOrderItem.getOrder().getId();
+        BigDecimal oldSubtotal = subtotal(existingOrderItem);
+        releaseStock(existingOrderItem.getProduct().getId(), existingOrderItem.getQuantity());
 
+        reserveStock(request.getProductId(), request.getQuantity());
         Product product = productService.getById(request.getProductId());
 
-        if (product.getOnHand() < request.getQuantity()) {
-            throw new OutOfStockException(request.getProductId());
-        }
-
-        product.setOnHand(product.getOnHand() - request.getQuantity());
-        productService.update(product.getId(), product);
-
-        existingOrderItem.setOrder(new OrderDAO(request.getOrderId()));
+        existingOrderItem.setOrder(new OrderDAO(orderId));
         existingOrderItem.setProduct(MapperUtils.map(product));
         existingOrderItem.setQuantity(BigInteger.valueOf(request.getQuantity()));
         existingOrderItem.setActive(true);
+        existingOrderItem.setDeletedAt(null);
         existingOrderItem.setUnitPrice(product.getUnitPrice());
 
         repository.saveAndFlush(existingOrderItem);
 
-        orderTotalService.calculateTotalAsync(request.getOrderId());
-        orderTotalService.calculateTotalAsync(oldOrderId);
+        ordersRepository.addToTotal(oldOrderId, oldSubtotal.negate());
+        ordersRepository.addToTotal(orderId, subtotal(existingOrderItem));
+        orderTotalService.recalculateTotal(oldOrderId);
+        if (!oldOrderId.equals(orderId)) {
+            orderTotalService.recalculateTotal(orderId);
+        }
 
         return MapperUtils.map(existingOrderItem);
     }
@@ -138,21 +151,54 @@ public class OrderItemsService implements CrudService<OrderItemRequest, OrderIte
     @Transactional
     public void delete(String id) throws Exception {
         OrderItemDAO orderItem = getOrderItemFromDatabase(id);
-        repository.softDeleteById(id);
+        // Through the session, so the cached item is updated by id instead of evicting the whole region
+        orderItem.setActive(false);
+        orderItem.setDeletedAt(LocalDateTime.now());
+        repository.saveAndFlush(orderItem);
+        releaseStock(orderItem.getProduct().getId(), orderItem.getQuantity());
+        ordersRepository.addToTotal(orderItem.getOrder().getId(), subtotal(orderItem).negate());
+        orderTotalService.recalculateTotal(orderItem.getOrder().getId());
+    }
+
+    private BigDecimal subtotal(OrderItemDAO orderItem) {
+        return orderItem.getUnitPrice().multiply(new BigDecimal(orderItem.getQuantity()));
+    }
+
+    private void validateQuantity(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be greater than or equal to 1");
+        }
+    }
 
-        Product product = productService.getById(orderItem.getProduct().getId());
-        product.setOnHand(product.getOnHand() + orderItem.getQuantity().intValue());
-        productService.update(product.getId(), product);
+    private UUID findOrderId(String orderId) {
+        return UuidUtils.parse(orderId)
+                .filter(ordersRepository::existsById)
+                .orElseThrow(() -> new EntityNotFoundException("Order does not exist"));
+    }
 
-        orderTotalService.calculateTotalAsync(orderItem.getOrder().getId());
+    private void reserveStock(String productId, int quantity) throws OutOfStockException {
+        UUID id = UuidUtils.parse(productId).orElse(null);
+        if (id == null || !inventoryService.reserve(id, BigInteger.valueOf(quantity))) {
+            // Nothing was reserved: fail with not found when the product does not exist
+            productService.getById(productId);
+            throw new OutOfStockException(productId);
+        }
+    }
+
+    private void releaseStock(UUID productId, BigInteger quantity) {
+        inventoryService.release(productId, quantity);
     }
 
     private OrderItemDAO getOrderItemFromDatabase(String id) {
+        validateId(id);
+        return UuidUtils.parse(id)
+                .flatMap(repository::findById)
+                .orElseThrow(() -> new EntityNotFoundException("Order Item does not exist"));
+    }
+
+    private void validateId(String id) {
         if (!StringUtils.hasText(id)) {
             throw new IllegalArgumentException("Order Item ID cannot be null or empty");
         }
-
-        return repository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Order Item does not exist"));
     }
 }
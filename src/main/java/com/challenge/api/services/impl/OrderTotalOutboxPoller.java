@@ -0,0 +1,38 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.services.OrderTotalService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "orders.total.outbox.polling-enabled", havingValue = "true", matchIfMissing = true)
+public class OrderTotalOutboxPoller {
+    private final OrderTotalService orderTotalService;
+    private final int maxBatches;
+
+    @Autowired
+    public OrderTotalOutboxPoller(@Qualifier("orderTotalService") OrderTotalService orderTotalService,
+                                  @Value("${orders.total.outbox.max-batches-per-poll:10}") int maxBatches) {
+        if (maxBatches < 1) {
+            throw new IllegalArgumentException("Outbox batches per poll must be greater than or equal to 1");
+        }
+
+        this.orderTotalService = orderTotalService;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${orders.total.outbox.poll-interval:1s}")
+    public void poll() {
+        // A backlog is drained several batches per interval, but never for long enough to hold up the other jobs of
+        // the scheduler, the next run picks up where this one stopped
+        for (int batch = 0; batch < maxBatches; batch++) {
+            if (orderTotalService.drainOutbox() == 0) {
+                return;
+            }
+        }
+    }
+}
@@ -1,44 +1,87 @@
 package com.challenge.api.services.impl;
 
-import com.challenge.api.model.dao.OrderDAO;
-import com.challenge.api.model.dao.OrderItemDAO;
-import com.challenge.api.repositories.ExtendedCrudRepository;
+import com.challenge.api.model.dao.OrderTotalOutboxDAO;
+import com.challenge.api.repositories.OrderTotalOutboxRepository;
+import com.challenge.api.repositories.OrdersRepository;
 import com.challenge.api.services.OrderTotalService;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * Recalculations are recorded in the order_total_outbox table instead of being scheduled in memory, so they never
+ * run before the item change is visible and are not lost on a restart. Each batch of the outbox is drained in one
+ * transaction, recalculating every order in it once with a single statement however many records it has.
+ */
 @Service("orderTotalService")
 public class OrderTotalServiceImpl implements OrderTotalService {
-    private final ExtendedCrudRepository<OrderDAO, String> repository;
+    private final OrdersRepository repository;
+    private final OrderTotalOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final Counter drained;
+    private final Counter recalculated;
+    private final Counter coalesced;
+    private final Timer lag;
 
     @Autowired
-    public OrderTotalServiceImpl(@Qualifier("ordersRepository") ExtendedCrudRepository<OrderDAO, String> repository) {
+    public OrderTotalServiceImpl(@Qualifier("ordersRepository") OrdersRepository repository,
+                                 @Qualifier("orderTotalOutboxRepository") OrderTotalOutboxRepository outboxRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${orders.total.outbox.batch-size:500}") int batchSize) {
         this.repository = repository;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+
+        this.drained = meterRegistry.counter("orders.total.outbox.drained");
+        this.recalculated = meterRegistry.counter("orders.total.outbox.recalculated");
+        this.coalesced = meterRegistry.counter("orders.total.outbox.coalesced");
+        this.lag = meterRegistry.timer("orders.total.outbox.lag");
     }
 
-    @Async
     @Override
-    @Transactional
-    public Future<BigDecimal> calculateTotalAsync(String orderId) {
-        synchronized (this) {
-            return repository.findById(orderId)
-                    .map(order -> {
-                        BigDecimal total = order.getItems().stream()
-                                .filter(OrderItemDAO::isActive)
-                                .map(item -> item.getProduct().getUnitPrice().multiply(new BigDecimal(item.getQuantity())))
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        order.setTotal(total);
-                        repository.save(order);
-                        return CompletableFuture.completedFuture(total);
-                    })
-                    .orElseGet(() -> CompletableFuture.completedFuture(BigDecimal.ZERO));
-        }
+    public void recalculateTotal(UUID orderId) {
+        outboxRepository.save(new OrderTotalOutboxDAO(null, orderId, LocalDateTime.now()));
+    }
+
+    @Override
+    public int drainOutbox() {
+        return transactionTemplate.execute(status -> {
+            List<OrderTotalOutboxDAO> entries = outboxRepository.findOldest(Limit.of(batchSize));
+            if (entries.isEmpty()) {
+                return 0;
+            }
+
+            Set<UUID> orderIds = entries.stream()
+                    .map(OrderTotalOutboxDAO::getOrderId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            repository.recalculateTotals(orderIds);
+            outboxRepository.deleteAllInBatch(entries);
+
+            LocalDateTime now = LocalDateTime.now();
+            entries.forEach(entry -> lag.record(Duration.between(entry.getCreatedAt(), now)));
+            drained.increment(entries.size());
+            recalculated.increment(orderIds.size());
+            coalesced.increment(entries.size() - orderIds.size());
+            return entries.size();
+        });
     }
 }
@@ -1,130 +1,340 @@
 package com.challenge.api.services.impl;
 
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.utils.CursorUtils;
 import com.challenge.api.utils.MapperUtils;
+import com.challenge.api.utils.UuidUtils;
 import com.challenge.api.model.dao.OrderDAO;
 import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.CursorPage;
 import com.challenge.api.model.dto.OrderItemRequest;
-import com.challenge.api.model.dto.OrderItemResponse;
 import com.challenge.api.model.dto.OrderRequest;
 import com.challenge.api.model.dto.OrderResponse;
-import com.challenge.api.repositories.ExtendedCrudRepository;
+import com.challenge.api.model.dto.ProductQuantity;
+import com.challenge.api.repositories.OrderItemsRepository;
+import com.challenge.api.repositories.OrdersRepository;
+import com.challenge.api.repositories.ProductsRepository;
 import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.OrderTotalService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service("ordersService")
 public class OrdersService implements CrudService<OrderRequest, OrderResponse, String> {
 
-    private final ExtendedCrudRepository<OrderDAO, String> repository;
-    private final CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+    private final OrdersRepository repository;
+    private final OrderItemsRepository orderItemsRepository;
+    private final ProductsRepository productsRepository;
+    private final OrderTotalService orderTotalService;
+    private final InventoryService inventoryService;
 
     @Autowired
-    public OrdersService(@Qualifier("ordersRepository") ExtendedCrudRepository<OrderDAO, String> repository,
-                         @Qualifier("orderItemsService") CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService) {
+    public OrdersService(@Qualifier("ordersRepository") OrdersRepository repository,
+                         @Qualifier("orderItemsRepository") OrderItemsRepository orderItemsRepository,
+                         @Qualifier("productsRepository") ProductsRepository productsRepository,
+                         @Qualifier("orderTotalService") OrderTotalService orderTotalService,
+                         @Qualifier("inventoryService") InventoryService inventoryService) {
         this.repository = repository;
-        this.orderItemsService = orderItemsService;
+        this.orderItemsRepository = orderItemsRepository;
+        this.productsRepository = productsRepository;
+        this.orderTotalService = orderTotalService;
+        this.inventoryService = inventoryService;
     }
 
     @Override
     public Page<OrderResponse> getAll(Pageable pageable) {
-        return repository.findAll(pageable)
-                .map(MapperUtils::map);
+        // Page over ids first so the item rows of the page are not paginated themselves
+        Page<UUID> ids = repository.findAllIds(pageable);
+        return new PageImpl<>(findAllByIds(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+
+    @Override
+    public CursorPage<OrderResponse> getAll(String cursor, int size) {
+        CursorUtils.validateSize(size);
+        UUID after = CursorUtils.decode(cursor);
+        List<UUID> ids = after == null
+                ? repository.findFirstActiveIds(Limit.of(size + 1))
+                : repository.findActiveIdsAfter(after, Limit.of(size + 1));
+
+        CursorPage<UUID> page = CursorUtils.toPage(ids, size, UUID::toString, Function.identity());
+        return new CursorPage<>(findAllByIds(page.content()), page.nextCursor());
     }
 
     @Override
     public OrderResponse getById(String id) {
-        return MapperUtils.map(getOrderFromDatabase(id));
+        if (!StringUtils.hasText(id)) {
+            throw new IllegalArgumentException("Order ID cannot be null or empty");
+        }
+
+        return UuidUtils.parse(id)
+                .flatMap(orderId -> findAllByIds(List.of(orderId)).stream().findFirst())
+                .orElseThrow(() -> new EntityNotFoundException("Order not found"));
     }
 
     @Override
-    @Transactional
+    @Transactional(rollbackOn = Exception.class)
     public OrderResponse create(OrderRequest request) throws Exception {
-        if (request == null) {
-            throw new IllegalArgumentException("OrderRequest cannot be null");
+        validate(request);
+        final OrderDAO orderDAO = newOrder(request, reserveStock(request.getItems()));
+
+        // The order and its items are inserted in JDBC batches on a single flush
+        repository.save(orderDAO);
+        orderItemsRepository.saveAll(orderDAO.getItems());
+        orderItemsRepository.flush();
+
+        return MapperUtils.map(orderDAO);
+    }
+
+    /**
+     * Applies only the difference between the current and the requested lines. Lines are matched by product in
+     * order: matched lines keep the price they were sold at and are written only when their quantity changes, extra
+     * requested lines are sold at the current price and extra current lines are deleted. Stock moves once per product
+     * by the net change in its units, and all item writes go out in JDBC batches on a single flush. The version of the
+     * order is bumped on every update, so of two concurrent updates of an order the later one fails with a conflict.
+     */
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public OrderResponse update(String id, OrderRequest request) throws Exception {
+        validate(request);
+        OrderDAO orderDAO = getOrderFromDatabase(id);
+        orderDAO.setCustomerName(request.getCustomerName());
+
+        Map<UUID, LinkedList<OrderItemDAO>> currentByProduct = new LinkedHashMap<>();
+        Map<UUID, BigInteger> netUnits = new LinkedHashMap<>();
+        for (OrderItemDAO item : orderDAO.getItems()) {
+            if (item.isActive()) {
+                UUID productId = item.getProduct().getId();
+                currentByProduct.computeIfAbsent(productId, key -> new LinkedList<>()).add(item);
+                netUnits.merge(productId, item.getQuantity().negate(), BigInteger::add);
+            }
         }
 
-        if (request.getItems() == null || request.getItems().isEmpty()) {
-            throw new IllegalArgumentException("Order items are required");
+        Map<UUID, Integer> requestedUnits = quantitiesByProduct(request.getItems());
+        requestedUnits.forEach((productId, quantity) -> netUnits.merge(productId, BigInteger.valueOf(quantity), BigInteger::add));
+
+        List<OrderItemDAO> changed = new ArrayList<>();
+        List<OrderItemRequest> added = new ArrayList<>();
+        for (OrderItemRequest line : request.getItems()) {
+            OrderItemDAO current = currentByProduct.getOrDefault(UUID.fromString(line.getProductId()), new LinkedList<>()).poll();
+            if (current == null) {
+                added.add(line);
+            } else if (current.getQuantity().intValue() != line.getQuantity()) {
+                current.setQuantity(BigInteger.valueOf(line.getQuantity()));
+                changed.add(current);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        currentByProduct.values().forEach(removed -> removed.forEach(item -> {
+            item.setActive(false);
+            item.setDeletedAt(now);
+            changed.add(item);
+        }));
+
+        Map<UUID, ProductDAO> productsById = added.isEmpty() ? Map.of() : findProducts(added);
+        adjustStock(netUnits);
+        for (OrderItemRequest line : added) {
+            ProductDAO product = productsById.get(UUID.fromString(line.getProductId()));
+            OrderItemDAO item = new OrderItemDAO(null, BigInteger.valueOf(line.getQuantity()), product.getUnitPrice(),
+                    true, product, orderDAO);
+            orderDAO.getItems().add(item);
+            changed.add(item);
+        }
+
+        if (!changed.isEmpty()) {
+            orderItemsRepository.saveAll(changed);
+            orderItemsRepository.flush();
+            BigDecimal total = orderDAO.getItems().stream()
+                    .filter(OrderItemDAO::isActive)
+                    .map(item -> item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            repository.addToTotal(orderDAO.getId(), total.subtract(orderDAO.getTotal()));
+            orderTotalService.recalculateTotal(orderDAO.getId());
+        }
+
+        return findAllByIds(List.of(orderDAO.getId())).getFirst();
+    }
+
+    @Override
+    @Transactional
+    public void delete(String id) throws Exception {
+        if (!StringUtils.hasText(id)) {
+            throw new IllegalArgumentException("Order ID cannot be null or empty");
+        }
+
+        // Deleting the order first locks it, so a concurrent delete cannot restore the same stock twice
+        UUID orderId = UuidUtils.parse(id)
+                .filter(uuid -> repository.softDeleteActiveById(uuid) == 1)
+                .orElseThrow(() -> new EntityNotFoundException("Order not found"));
+
+        // One stock update per distinct product, however many lines the order has
+        for (ProductQuantity line : orderItemsRepository.sumActiveQuantitiesByProduct(orderId)) {
+            inventoryService.release(line.productId(), line.quantity());
         }
+        // Through the session, so the cached items are updated one by one instead of evicting the whole region
+        List<OrderItemDAO> items = orderItemsRepository.findAllByOrderIdAndActiveTrue(orderId);
+        LocalDateTime now = LocalDateTime.now();
+        items.forEach(item -> {
+            item.setActive(false);
+            item.setDeletedAt(now);
+        });
+        orderItemsRepository.saveAll(items);
+    }
 
-        final OrderDAO orderDAO = repository.save(new OrderDAO(null, request.getCustomerName(),
-                LocalDateTime.now(), BigDecimal.ZERO, true, new LinkedList<>()));
+    // Items are sold at the current unit price of their product, so productsById must hold every product of the request
+    static OrderDAO newOrder(OrderRequest request, Map<UUID, ProductDAO> productsById) {
+        final OrderDAO orderDAO = new OrderDAO(null, request.getCustomerName(),
+                LocalDateTime.now(), BigDecimal.ZERO, true, new LinkedList<>());
 
-        final List<OrderItemResponse> orderItemResponses = request.getItems()
+        final List<OrderItemDAO> items = request.getItems()
                 .stream()
                 .map(item -> {
-                    OrderItemRequest orderItemRequest = new OrderItemRequest(orderDAO.getId(),
-                            item.getProductId(), item.getQuantity());
-
-                    try {
-                        OrderItemResponse orderItemResponse = orderItemsService.create(orderItemRequest);
-                        BigDecimal totalOrderItem = orderItemResponse.getPrice().multiply(new BigDecimal(orderItemResponse.getQuantity()));
-                        // Update total order
-                        orderDAO.setTotal(orderDAO.getTotal().add(totalOrderItem));
-                        return orderItemResponse;
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
+                    ProductDAO product = productsById.get(UUID.fromString(item.getProductId()));
+                    return new OrderItemDAO(null, BigInteger.valueOf(item.getQuantity()), product.getUnitPrice(),
+                            true, product, orderDAO);
                 }).toList();
 
-        //Update the total in the database
-        repository.save(orderDAO);
+        orderDAO.getItems().addAll(items);
+        orderDAO.setTotal(items.stream()
+                .map(item -> item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        return orderDAO;
+    }
 
-        OrderResponse response = MapperUtils.map(orderDAO);
-        response.setItems(orderItemResponses);
-        return response;
+    private List<OrderResponse> findAllByIds(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, OrderResponse> ordersById = MapperUtils.mapRows(repository.findRowsByIdIn(ids))
+                .stream()
+                .collect(Collectors.toMap(OrderResponse::getId, Function.identity()));
+
+        // Keep the order of the ids page, skipping orders deleted in between both queries
+        return ids.stream()
+                .map(orderId -> ordersById.get(orderId.toString()))
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    @Override
-    @Transactional(rollbackOn = Exception.class)
-    public OrderResponse update(String id, OrderRequest request) throws Exception {
+    static void validate(OrderRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("OrderRequest cannot be null");
         }
 
-        OrderDAO orderDAO = getOrderFromDatabase(id);
-        orderDAO.setCustomerName(request.getCustomerName());
+        // Checked here as well as on the entity, so a batch rejects the order before the chunk holding it is flushed
+        if (request.getCustomerName() == null) {
+            throw new IllegalArgumentException("Customer name is required");
+        }
 
-        Map<String, OrderItemDAO> orderItemsById = orderDAO.getItems().stream()
-                .collect(Collectors.toMap(OrderItemDAO::getId, item -> item));
+        if (request.getCustomerName().length() < 3 || request.getCustomerName().length() > 100) {
+            throw new IllegalArgumentException("Customer name must be between 3 and 100 characters");
+        }
 
-        for(OrderItemRequest orderItemRequest : request.getItems()) {
-            orderItemRequest.setOrderId(id);
-            if (StringUtils.hasText(id)) {
-                orderItemsService.update(id, orderItemRequest);
-            } else {
-                orderItemsService.create(orderItemRequest);
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Order items are required");
+        }
+
+        for (OrderItemRequest item : request.getItems()) {
+            if (!StringUtils.hasText(item.getProductId())) {
+                throw new IllegalArgumentException("Product ID cannot be null or empty");
+            }
+
+            if (item.getQuantity() < 1) {
+                throw new IllegalArgumentException("Quantity must be greater than or equal to 1");
+            }
+        }
+    }
+
+    // Lines for the same product are validated and reserved together
+    static Map<UUID, Integer> quantitiesByProduct(List<OrderItemRequest> items) {
+        Map<UUID, Integer> quantitiesByProduct = new LinkedHashMap<>();
+        for (OrderItemRequest item : items) {
+            UUID productId = UuidUtils.parse(item.getProductId())
+                    .orElseThrow(() -> new EntityNotFoundException("Product with id " + item.getProductId() + " not found"));
+            quantitiesByProduct.merge(productId, item.getQuantity(), Integer::sum);
+        }
+        return quantitiesByProduct;
+    }
+
+    private Map<UUID, ProductDAO> reserveStock(List<OrderItemRequest> items) throws OutOfStockException {
+        Map<UUID, Integer> quantitiesByProduct = quantitiesByProduct(items);
+        Map<UUID, ProductDAO> productsById = productsRepository.findAllById(quantitiesByProduct.keySet())
+                .stream()
+                .collect(Collectors.toMap(ProductDAO::getId, Function.identity()));
+
+        for (Map.Entry<UUID, Integer> entry : quantitiesByProduct.entrySet()) {
+            ProductDAO product = productsById.get(entry.getKey());
+
+            if (product == null) {
+                throw new EntityNotFoundException("Product with id " + entry.getKey() + " not found");
             }
-            orderItemsById.remove(id);
         }
 
-        for (String orderItemId: orderItemsById.keySet()) {
-            orderItemsService.delete(orderItemId);
+        // The reservation is the stock check, on hand of the loaded products may already be out of date
+        Map<UUID, BigInteger> units = new HashMap<>();
+        quantitiesByProduct.forEach((productId, quantity) -> units.put(productId, BigInteger.valueOf(quantity)));
+        Optional<UUID> outOfStock = inventoryService.reserveAll(units);
+        if (outOfStock.isPresent()) {
+            throw new OutOfStockException(outOfStock.get().toString());
         }
 
-        return MapperUtils.map(repository.save(orderDAO));
+        return productsById;
     }
 
-    @Override
-    @Transactional
-    public void delete(String id) throws Exception {
-        for (OrderItemDAO item : getOrderFromDatabase(id).getItems()) {
-            orderItemsService.delete(item.getId());
+    // Returns units to the products an update took lines away from and takes them from the ones it added lines to, in
+    // the id order reservations of new orders lock products in
+    private void adjustStock(Map<UUID, BigInteger> netUnits) throws OutOfStockException {
+        Map<UUID, BigInteger> sorted = new TreeMap<>(UuidUtils.DATABASE_ORDER);
+        sorted.putAll(netUnits);
+        for (Map.Entry<UUID, BigInteger> entry : sorted.entrySet()) {
+            if (entry.getValue().signum() < 0) {
+                inventoryService.release(entry.getKey(), entry.getValue().negate());
+            } else if (entry.getValue().signum() > 0 && !inventoryService.reserve(entry.getKey(), entry.getValue())) {
+                if (!productsRepository.existsById(entry.getKey())) {
+                    throw new EntityNotFoundException("Product with id " + entry.getKey() + " not found");
+                }
+                throw new OutOfStockException(entry.getKey().toString());
+            }
+        }
+    }
+
+    private Map<UUID, ProductDAO> findProducts(List<OrderItemRequest> items) {
+        Map<UUID, ProductDAO> productsById = productsRepository.findAllById(quantitiesByProduct(items).keySet())
+                .stream()
+                .collect(Collectors.toMap(ProductDAO::getId, Function.identity()));
+
+        for (OrderItemRequest item : items) {
+            if (!productsById.containsKey(UUID.fromString(item.getProductId()))) {
+                throw new EntityNotFoundException("Product with id " + item.getProductId() + " not found");
+            }
         }
-        repository.softDeleteById(id);
+        return productsById;
     }
 
     private OrderDAO getOrderFromDatabase(String id) {
@@ -132,7 +342,8 @@ public class OrdersService implements CrudService<OrderRequest, OrderResponse, S
             throw new IllegalArgumentException("Order ID cannot be null or empty");
         }
 
-        return repository.findById(id)
+        return UuidUtils.parse(id)
+                .flatMap(repository::findByIdIncrementingVersion)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found"));
     }
 }
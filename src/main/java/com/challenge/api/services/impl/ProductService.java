@@ -1,29 +1,62 @@
 package com.challenge.api.services.impl;
 
+import com.challenge.api.utils.CursorUtils;
 import com.challenge.api.utils.MapperUtils;
+import com.challenge.api.utils.UuidUtils;
 import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.CursorPage;
 import com.challenge.api.model.dto.Product;
-import com.challenge.api.repositories.ExtendedCrudRepository;
+import com.challenge.api.repositories.ProductsRepository;
 import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.ProductInvalidationBus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 
 @Service(value = "productsService")
 public class ProductService implements CrudService<Product, Product, String> {
 
-    private final ExtendedCrudRepository<ProductDAO, String> repository;
+    private final ProductsRepository repository;
+    private final ProductInvalidationBus invalidationBus;
+    private final InventoryService inventoryService;
+    private final Cache<UUID, Product> cache;
 
     @Autowired
-    public ProductService(@Qualifier("productsRepository") ExtendedCrudRepository<ProductDAO, String> repository) {
+    public ProductService(@Qualifier("productsRepository") ProductsRepository repository,
+                          @Qualifier("productInvalidationBus") ProductInvalidationBus invalidationBus,
+                          @Qualifier("inventoryService") InventoryService inventoryService,
+                          MeterRegistry meterRegistry,
+                          @Value("${products.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${products.cache.ttl:5m}") Duration ttl) {
         this.repository = repository;
+        this.invalidationBus = invalidationBus;
+        this.inventoryService = inventoryService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+        invalidationBus.subscribe(cache::invalidate);
     }
 
     @Override
@@ -32,13 +65,31 @@ public class ProductService implements CrudService<Product, Product, String> {
             throw new IllegalArgumentException("PageRequest cannot be null");
         }
 
-        return repository.findAll(pageable)
-                .map(MapperUtils::map);
+        return repository.findAllAsDto(pageable);
+    }
+
+    @Override
+    public CursorPage<Product> getAll(String cursor, int size) {
+        CursorUtils.validateSize(size);
+        UUID after = CursorUtils.decode(cursor);
+        List<Product> products = after == null
+                ? repository.findFirstActiveAsDto(Limit.of(size + 1))
+                : repository.findActiveAsDtoAfter(after, Limit.of(size + 1));
+
+        return CursorUtils.toPage(products, size, Product::getId, Function.identity());
     }
 
     @Override
     public Product getById(String id) {
-        return MapperUtils.map(getProductFromDatabase(id));
+        validateId(id);
+        Product product = UuidUtils.parse(id)
+                .map(key -> cache.get(key, productId -> repository.findAsDtoById(productId).orElse(null)))
+                .orElse(null);
+        if (product == null) {
+            throw notFound(id);
+        }
+
+        return product;
     }
 
     @Override
@@ -68,6 +119,8 @@ public class ProductService implements CrudService<Product, Product, String> {
         productDAO.setOnHand(BigInteger.valueOf(product.getOnHand() != null ? product.getOnHand() : 0));
         productDAO.setUnitPrice(product.getUnitPrice());
         productDAO = repository.saveAndFlush(productDAO);
+        inventoryService.restocked(productDAO.getId(), productDAO.getOnHand());
+        invalidationBus.publish(productDAO.getId());
 
         return MapperUtils.map(productDAO);
     }
@@ -76,16 +129,26 @@ public class ProductService implements CrudService<Product, Product, String> {
     @Transactional(rollbackOn = Exception.class)
     public void delete(String id) {
         //Validate the product exists and the id is valid
-        getProductFromDatabase(id);
-        repository.softDeleteById(id);
+        UUID productId = getProductFromDatabase(id).getId();
+        repository.softDeleteById(productId);
+        inventoryService.retired(productId);
+        invalidationBus.publish(productId);
     }
 
     private ProductDAO getProductFromDatabase(String id) {
+        validateId(id);
+        return UuidUtils.parse(id)
+                .flatMap(repository::findById)
+                .orElseThrow(() -> notFound(id));
+    }
+
+    private void validateId(String id) {
         if (!StringUtils.hasText(id)) {
             throw new IllegalArgumentException("Product id cannot be null or empty");
         }
+    }
 
-        return repository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Product with id " + id + " not found"));
+    private EntityNotFoundException notFound(String id) {
+        return new EntityNotFoundException("Product with id " + id + " not found");
     }
 }
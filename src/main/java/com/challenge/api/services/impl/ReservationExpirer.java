@@ -0,0 +1,37 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.services.ReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "reservations.expiry-enabled", havingValue = "true", matchIfMissing = true)
+public class ReservationExpirer {
+    private final ReservationService reservationService;
+
+    @Autowired
+    public ReservationExpirer(@Qualifier("reservationService") ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    // Failed batches are put back in the wheel by the service
+    @Scheduled(fixedDelayString = "${reservations.tick:100ms}")
+    public void expire() {
+        reservationService.expire(System.currentTimeMillis());
+    }
+
+    // Expires the reservations of nodes that stopped before their wheel did
+    @Scheduled(fixedDelayString = "${reservations.sweep-interval:1m}", initialDelayString = "${reservations.sweep-interval:1m}")
+    public void sweep() {
+        try {
+            reservationService.sweep(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.warn("Sweeping the reservations failed, retrying on the next interval", e);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ReservationDAO;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.model.dto.ReservationRequest;
+import com.challenge.api.model.dto.ReservationResponse;
+import com.challenge.api.repositories.OrderItemsRepository;
+import com.challenge.api.repositories.OrdersRepository;
+import com.challenge.api.repositories.ReservationsRepository;
+import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.OrderTotalService;
+import com.challenge.api.services.ReservationService;
+import com.challenge.api.utils.MapperUtils;
+import com.challenge.api.utils.TimingWheel;
+import com.challenge.api.utils.UuidUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Reservations take their units like order items do and are kept in the reservations table, while their expiry is
+ * tracked by a timing wheel in memory, so holding units needs neither a scheduled task per reservation nor a query
+ * looking for expired rows. Each tick moves the wheel and expires the reservations it returns in batches, releasing
+ * the units of each batch with one update per product and deleting its rows with one statement.
+ * <p>
+ * The wheel is filled from the table on startup, so reservations outlive a restart. Confirmations and cancellations
+ * leave their entry in the wheel, which then finds no row when it expires. Every node expires the reservations it
+ * knows of, each one locked while it is confirmed, cancelled or expired so only one of them gets its units. A slow
+ * sweep of the table expires the ones still there a sweep interval past their expiry, like those of a node that
+ * stopped for good.
+ */
+@Slf4j
+@Service("reservationService")
+public class ReservationServiceImpl implements ReservationService {
+    private final ReservationsRepository repository;
+    private final OrderItemsRepository orderItemsRepository;
+    private final OrdersRepository ordersRepository;
+    private final CrudService<Product, Product, String> productService;
+    private final InventoryService inventoryService;
+    private final OrderTotalService orderTotalService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final int batchSize;
+    private final Duration sweepInterval;
+    private final TimingWheel<UUID> wheel;
+
+    private final Counter created;
+    private final Counter confirmed;
+    private final Counter cancelled;
+    private final Counter expired;
+
+    @Autowired
+    public ReservationServiceImpl(@Qualifier("reservationsRepository") ReservationsRepository repository,
+                                  @Qualifier("orderItemsRepository") OrderItemsRepository orderItemsRepository,
+                                  @Qualifier("ordersRepository") OrdersRepository ordersRepository,
+                                  @Qualifier("productsService") CrudService<Product, Product, String> productService,
+                                  @Qualifier("inventoryService") InventoryService inventoryService,
+                                  @Qualifier("orderTotalService") OrderTotalService orderTotalService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${reservations.ttl:10m}") Duration ttl,
+                                  @Value("${reservations.tick:100ms}") Duration tick,
+                                  @Value("${reservations.wheel-size:512}") int wheelSize,
+                                  @Value("${reservations.expiry-batch-size:500}") int batchSize,
+                                  @Value("${reservations.sweep-interval:1m}") Duration sweepInterval) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Reservation ttl must be positive");
+        }
+
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Reservation expiry batch size must be greater than or equal to 1");
+        }
+
+        if (sweepInterval.isNegative() || sweepInterval.isZero()) {
+            throw new IllegalArgumentException("Reservation sweep interval must be positive");
+        }
+
+        this.repository = repository;
+        this.orderItemsRepository = orderItemsRepository;
+        this.ordersRepository = ordersRepository;
+        this.productService = productService;
+        this.inventoryService = inventoryService;
+        this.orderTotalService = orderTotalService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.batchSize = batchSize;
+        this.sweepInterval = sweepInterval;
+        this.wheel = new TimingWheel<>(tick, wheelSize, System.currentTimeMillis());
+
+        this.created = meterRegistry.counter("reservations", "outcome", "created");
+        this.confirmed = meterRegistry.counter("reservations", "outcome", "confirmed");
+        this.cancelled = meterRegistry.counter("reservations", "outcome", "cancelled");
+        this.expired = meterRegistry.counter("reservations", "outcome", "expired");
+        meterRegistry.gauge("reservations.pending", wheel, TimingWheel::size);
+    }
+
+    @PostConstruct
+    public void recover() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (var reservations = repository.streamAll()) {
+                reservations.forEach(reservation -> wheel.add(reservation.getId(), toMillis(reservation.getExpiresAt())));
+            }
+        });
+        if (wheel.size() > 0) {
+            log.info("Loaded {} reservations to expire", wheel.size());
+        }
+    }
+
+    @Override
+    @Transactional(rollbackOn = OutOfStockException.class)
+    public ReservationResponse create(ReservationRequest request) throws OutOfStockException {
+        if (request == null) {
+            throw new IllegalArgumentException("ReservationRequest cannot be null");
+        }
+
+        if (request.getQuantity() < 1) {
+            throw new IllegalArgumentException("Quantity must be greater than or equal to 1");
+        }
+
+        UUID productId = UuidUtils.parse(request.getProductId()).orElse(null);
+        BigInteger quantity = BigInteger.valueOf(request.getQuantity());
+        if (productId == null || !inventoryService.reserve(productId, quantity)) {
+            // Nothing was reserved: fail with not found when the product does not exist
+            productService.getById(request.getProductId());
+            throw new OutOfStockException(request.getProductId());
+        }
+
+        Instant expiresAt = Instant.now().plus(ttl);
+        ReservationDAO reservation = repository.save(new ReservationDAO(null, productId, quantity,
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault())));
+        UUID id = reservation.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wheel.add(id, expiresAt.toEpochMilli());
+            }
+        });
+
+        created.increment();
+        return toResponse(reservation);
+    }
+
+    @Override
+    public ReservationResponse getById(String id) {
+        validateId(id);
+        return UuidUtils.parse(id)
+                .flatMap(repository::findAsDtoById)
+                .orElseThrow(() -> new EntityNotFoundException("Reservation does not exist"));
+    }
+
+    // The units stay reserved, now by the order item
+    @Override
+    @Transactional
+    public OrderItemResponse confirm(String id, String orderId) {
+        ReservationDAO reservation = getReservationForUpdate(id);
+        UUID order = UuidUtils.parse(orderId)
+                .filter(ordersRepository::existsById)
+                .orElseThrow(() -> new EntityNotFoundException("Order does not exist"));
+        Product product = productService.getById(reservation.getProductId().toString());
+
+        OrderItemDAO item = new OrderItemDAO();
+        item.setOrder(new OrderDAO(order));
+        item.setProduct(MapperUtils.map(product));
+        item.setQuantity(reservation.getQuantity());
+        item.setActive(true);
+        item.setUnitPrice(product.getUnitPrice());
+
+        item = orderItemsRepository.saveAndFlush(item);
+        ordersRepository.addToTotal(order, item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())));
+        orderTotalService.recalculateTotal(order);
+        repository.delete(reservation);
+
+        confirmed.increment();
+        return MapperUtils.map(item);
+    }
+
+    @Override
+    @Transactional
+    public void cancel(String id) {
+        ReservationDAO reservation = getReservationForUpdate(id);
+        inventoryService.release(reservation.getProductId(), reservation.getQuantity());
+        repository.delete(reservation);
+        cancelled.increment();
+    }
+
+    @Override
+    public int expire(long nowMillis) {
+        List<UUID> due = wheel.advance(nowMillis);
+        int count = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<UUID> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                count += transactionTemplate.execute(status -> expireBatch(batch));
+            } catch (RuntimeException e) {
+                // Tried again on the next tick
+                batch.forEach(reservationId -> wheel.add(reservationId, nowMillis));
+                log.warn("Expiring {} reservations failed, retrying on the next tick", batch.size(), e);
+            }
+        }
+        return count;
+    }
+
+    // Leaves the reservations the wheel of their node is about to expire to it
+    @Override
+    public int sweep(long nowMillis) {
+        LocalDateTime before = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis).minus(sweepInterval), ZoneId.systemDefault());
+        int count = 0;
+        List<UUID> batch;
+        do {
+            batch = repository.findIdsExpiredBefore(before, Limit.of(batchSize));
+            List<UUID> ids = batch;
+            count += batch.isEmpty() ? 0 : transactionTemplate.execute(status -> expireBatch(ids));
+        } while (batch.size() == batchSize);
+
+        if (count > 0) {
+            log.info("Swept {} reservations no node had expired", count);
+        }
+        return count;
+    }
+
+    private int expireBatch(List<UUID> batch) {
+        List<ReservationDAO> reservations = repository.findAllByIdForUpdate(batch);
+        if (reservations.isEmpty()) {
+            return 0;
+        }
+
+        // One release per product, in the id order reservations of orders lock products in
+        Map<UUID, BigInteger> units = new TreeMap<>(UuidUtils.DATABASE_ORDER);
+        reservations.forEach(reservation -> units.merge(reservation.getProductId(), reservation.getQuantity(), BigInteger::add));
+        units.forEach(inventoryService::release);
+        repository.deleteAllByIdIn(reservations.stream().map(ReservationDAO::getId).toList());
+
+        expired.increment(reservations.size());
+        return reservations.size();
+    }
+
+    // Reservations past their expiry are left to the wheel, which returns their units
+    private ReservationDAO getReservationForUpdate(String id) {
+        validateId(id);
+        return UuidUtils.parse(id)
+                .flatMap(repository::findByIdForUpdate)
+                .filter(reservation -> reservation.getExpiresAt().isAfter(LocalDateTime.now()))
+                .orElseThrow(() -> new EntityNotFoundException("Reservation does not exist"));
+    }
+
+    private void validateId(String id) {
+        if (!StringUtils.hasText(id)) {
+            throw new IllegalArgumentException("Reservation ID cannot be null or empty");
+        }
+    }
+
+    private static ReservationResponse toResponse(ReservationDAO reservation) {
+        return new ReservationResponse(reservation.getId().toString(), reservation.getProductId().toString(),
+                reservation.getQuantity().intValueExact(), reservation.getExpiresAt());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
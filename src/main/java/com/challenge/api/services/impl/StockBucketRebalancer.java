@@ -0,0 +1,30 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.services.StockBucketService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.buckets.rebalancing-enabled", havingValue = "true", matchIfMissing = true)
+public class StockBucketRebalancer {
+    private final StockBucketService stockBucketService;
+
+    @Autowired
+    public StockBucketRebalancer(@Qualifier("stockBucketService") StockBucketService stockBucketService) {
+        this.stockBucketService = stockBucketService;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.buckets.rebalance-interval:5s}")
+    public void rebalance() {
+        try {
+            stockBucketService.rebalance();
+        } catch (RuntimeException e) {
+            log.warn("Rebalancing the stock buckets failed, retrying on the next interval", e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.challenge.api.services.impl;
+
+import com.challenge.api.model.dao.ProductStockBucketDAO;
+import com.challenge.api.model.dao.ProductStockBucketId;
+import com.challenge.api.model.dto.ProductStock;
+import com.challenge.api.model.dto.StockBucket;
+import com.challenge.api.repositories.ProductStockBucketsRepository;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.StockBucketService;
+import com.challenge.api.utils.UuidUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * A split product keeps its units on hand in several bucket rows, so concurrent reservations of it lock different
+ * rows. A reservation takes the first bucket that can take it on its own and no other transaction holds, starting from
+ * a random one or the one of its thread and moving on to the next ones, and when there is none the product is
+ * rebalanced with the reservation taken out of its total. Rebalancing locks the buckets in order, moves the units
+ * released to the product row into them and spreads the total evenly, and also runs on an interval for every split
+ * product. Reservations skip the buckets other transactions hold instead of waiting on them, so they hold no bucket
+ * lock when they rebalance, where locks are taken in bucket order. Databases without SKIP LOCKED, like H2, wait and
+ * may keep the lock of a bucket emptied in between, which can make a reservation a deadlock victim.
+ * <p>
+ * The bucket count of split products is cached per node, refreshed on that interval and whenever a reservation finds
+ * the buckets of a product this node did not know as split, or finds them gone: a stale answer only costs a failed
+ * update before the other path is tried.
+ */
+@Service("stockBucketService")
+public class StockBucketServiceImpl implements StockBucketService {
+    static final int MAX_BUCKETS = 64;
+
+    private final ProductStockBucketsRepository repository;
+    private final ProductsRepository productsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean pickByThread;
+    private final Map<UUID, Integer> bucketCounts = new ConcurrentHashMap<>();
+
+    private final Counter rebalances;
+
+    @Autowired
+    public StockBucketServiceImpl(@Qualifier("productStockBucketsRepository") ProductStockBucketsRepository repository,
+                                  @Qualifier("productsRepository") ProductsRepository productsRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${inventory.engine:database}") String engine,
+                                  @Value("${inventory.buckets.pick:random}") String pick) {
+        if (!pick.equals("random") && !pick.equals("thread")) {
+            throw new IllegalArgumentException("Stock bucket pick must be random or thread");
+        }
+
+        this.repository = repository;
+        this.productsRepository = productsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The in-memory engine keeps every unit in its counters
+        this.enabled = engine.equals("database");
+        this.pickByThread = pick.equals("thread");
+
+        this.rebalances = meterRegistry.counter("inventory.buckets.rebalances");
+    }
+
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public void split(String productId, int buckets) {
+        if (!enabled) {
+            throw new IllegalArgumentException("Stock buckets need the database inventory engine");
+        }
+
+        if (buckets < 1 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Stock buckets must be between 1 and " + MAX_BUCKETS);
+        }
+
+        UUID id = UuidUtils.parse(productId)
+                .filter(uuid -> productsRepository.findById(uuid).isPresent())
+                .orElseThrow(() -> new EntityNotFoundException("Product with id " + productId + " not found"));
+
+        merge(id);
+        if (buckets == 1) {
+            return;
+        }
+
+        repository.saveAll(IntStream.range(0, buckets)
+                .mapToObj(bucket -> new ProductStockBucketDAO(new ProductStockBucketId(id, bucket), BigInteger.ZERO, BigInteger.ZERO))
+                .toList());
+        repository.flush();
+        rebalance(id, BigInteger.ZERO);
+    }
+
+    @Override
+    public boolean reserve(UUID productId, BigInteger quantity) {
+        // Split by another node or before a restart, rebalancing finds its buckets and counts them
+        if (!bucketCounts.containsKey(productId)) {
+            return rebalance(productId, quantity);
+        }
+
+        List<Integer> bucket = repository.findFreeBucketWithStock(productId, quantity,
+                pick(bucketCounts.getOrDefault(productId, 1)), Limit.of(1));
+        if (!bucket.isEmpty() && repository.reserveStock(productId, bucket.getFirst(), quantity) == 1) {
+            return true;
+        }
+
+        // No bucket can take the units on its own, or the ones that could are held by other reservations
+        return rebalance(productId, quantity);
+    }
+
+    @Override
+    public boolean release(UUID productId, BigInteger quantity) {
+        Integer buckets = bucketCounts.get(productId);
+        return buckets != null && repository.releaseStock(productId, pick(buckets), quantity) == 1;
+    }
+
+    @Override
+    public boolean isSplit(UUID productId) {
+        return bucketCounts.containsKey(productId);
+    }
+
+    @Override
+    public void restocked(UUID productId) {
+        if (repository.emptyAllByProductId(productId) > 0) {
+            rebalance(productId, BigInteger.ZERO);
+        }
+    }
+
+    @Override
+    public void merge(UUID productId) {
+        List<StockBucket> buckets = repository.findAllForUpdate(productId);
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        productsRepository.addStock(productId,
+                buckets.stream().map(StockBucket::onHand).reduce(BigInteger.ZERO, BigInteger::add),
+                buckets.stream().map(StockBucket::reservedUnits).reduce(BigInteger.ZERO, BigInteger::add));
+        repository.deleteAllByProductId(productId);
+        bucketCounts.remove(productId);
+    }
+
+    @Override
+    public void mergeAll() {
+        transactionTemplate.executeWithoutResult(status -> repository.findSplitProductIds().forEach(this::merge));
+    }
+
+    @Override
+    public int rebalance() {
+        List<UUID> productIds = repository.findSplitProductIds();
+        bucketCounts.keySet().retainAll(productIds);
+        productIds.forEach(productId -> transactionTemplate.executeWithoutResult(status -> rebalance(productId, BigInteger.ZERO)));
+        return productIds.size();
+    }
+
+    // Spreads the units of the row and buckets evenly over the buckets once the taken ones are out, returns false
+    // when the product is not split or does not have that many units, in which case nothing is taken
+    private boolean rebalance(UUID productId, BigInteger taken) {
+        List<StockBucket> buckets = repository.findAllForUpdate(productId);
+        if (buckets.isEmpty()) {
+            bucketCounts.remove(productId);
+            return false;
+        }
+        bucketCounts.put(productId, buckets.size());
+
+        BigInteger inRow = productsRepository.findStockById(productId).map(ProductStock::onHand).orElse(BigInteger.ZERO);
+        if (inRow.signum() > 0 && productsRepository.takeOnHand(productId, inRow) == 0) {
+            // Reserved from the row in between, left for the next rebalance
+            inRow = BigInteger.ZERO;
+        }
+
+        BigInteger total = buckets.stream().map(StockBucket::onHand).reduce(inRow, BigInteger::add);
+        boolean enough = total.compareTo(taken) >= 0;
+        BigInteger[] share = (enough ? total.subtract(taken) : total).divideAndRemainder(BigInteger.valueOf(buckets.size()));
+        for (int i = 0; i < buckets.size(); i++) {
+            StockBucket bucket = buckets.get(i);
+            BigInteger onHand = i < share[1].intValue() ? share[0].add(BigInteger.ONE) : share[0];
+            BigInteger reserved = enough && i == 0 ? taken : BigInteger.ZERO;
+            if (!onHand.equals(bucket.onHand()) || reserved.signum() != 0) {
+                repository.writeStock(productId, bucket.bucket(), onHand, reserved);
+            }
+        }
+
+        rebalances.increment();
+        return enough;
+    }
+
+    private int pick(int buckets) {
+        if (buckets <= 1) {
+            return 0;
+        }
+        return pickByThread
+                ? (int) (Thread.currentThread().threadId() % buckets)
+                : ThreadLocalRandom.current().nextInt(buckets);
+    }
+}
@@ -0,0 +1,47 @@
+package com.challenge.api.utils;
+
+import com.challenge.api.model.dto.CursorPage;
+import lombok.experimental.UtilityClass;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+@UtilityClass
+public class CursorUtils {
+
+    public static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UUID decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static void validateSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than or equal to 1");
+        }
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of {@code size + 1}: the extra row only tells
+     * whether there is a next page, and the cursor points to the last row returned.
+     */
+    public static <E, R> CursorPage<R> toPage(List<E> rows, int size, Function<E, String> idOf, Function<E, R> mapper) {
+        List<E> content = rows.size() > size ? rows.subList(0, size) : rows;
+        String nextCursor = rows.size() > size ? encode(idOf.apply(content.getLast())) : null;
+        return new CursorPage<>(content.stream().map(mapper).toList(), nextCursor);
+    }
+}
@@ -5,11 +5,17 @@ import com.challenge.api.model.dao.OrderItemDAO;
 import com.challenge.api.model.dao.ProductDAO;
 import com.challenge.api.model.dto.OrderItemResponse;
 import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.model.dto.OrderRow;
 import com.challenge.api.model.dto.Product;
 import jakarta.transaction.Transactional;
 import lombok.experimental.UtilityClass;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @UtilityClass
 public class MapperUtils {
@@ -17,7 +23,7 @@ public class MapperUtils {
     @Transactional
     public static OrderResponse map(OrderDAO order) {
         OrderResponse orderResponse = new OrderResponse();
-        orderResponse.setId(order.getId());
+        orderResponse.setId(order.getId().toString());
         orderResponse.setTotal(order.getTotal().setScale(2));
         orderResponse.setCustomerName(order.getCustomerName());
 
@@ -32,17 +38,32 @@ public class MapperUtils {
     @Transactional
     public static OrderItemResponse map(OrderItemDAO orderItem) {
         OrderItemResponse orderItemResponse = new OrderItemResponse();
-        orderItemResponse.setId(orderItem.getId());
+        orderItemResponse.setId(orderItem.getId().toString());
         orderItemResponse.setPrice(orderItem.getUnitPrice());
-        orderItemResponse.setProductId(orderItem.getProduct().getId());
+        orderItemResponse.setProductId(orderItem.getProduct().getId().toString());
         orderItemResponse.setProductName(orderItem.getProduct().getName());
         orderItemResponse.setQuantity(orderItem.getQuantity().intValue());
         return orderItemResponse;
     }
 
+    public static List<OrderResponse> mapRows(List<OrderRow> rows) {
+        Map<UUID, OrderResponse> orders = new LinkedHashMap<>();
+        for (OrderRow row : rows) {
+            OrderResponse order = orders.computeIfAbsent(row.orderId(), id ->
+                    new OrderResponse(id.toString(), row.customerName(), row.total().setScale(2), new ArrayList<>()));
+
+            // Orders without active items come back as a single row without item columns
+            if (row.itemId() != null) {
+                order.getItems().add(new OrderItemResponse(row.itemId().toString(), row.productId().toString(), row.productName(),
+                        row.price(), row.quantity()));
+            }
+        }
+        return new ArrayList<>(orders.values());
+    }
+
     public static ProductDAO map(Product product) {
         return new ProductDAO(
-                product.getId(),
+                UuidUtils.parse(product.getId()).orElse(null),
                 product.getName(),
                 product.getDescription(),
                 BigInteger.valueOf(product.getOnHand() != null ? product.getOnHand() : 0),
@@ -53,7 +74,7 @@ public class MapperUtils {
 
     public static Product map(ProductDAO productDAO) {
         return new Product(
-                productDAO.getId(),
+                productDAO.getId().toString(),
                 productDAO.getName(),
                 productDAO.getDescription(),
                 productDAO.getOnHand().intValue(),
@@ -0,0 +1,131 @@
+package com.challenge.api.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: items are kept in the slot of the tick they expire on, in the first level whose slots
+ * span their remaining time, so adding one is a list append and each tick only looks at the one slot it reaches. Each
+ * level has the given number of slots, each slot spanning a whole turn of the level below, and whenever a level
+ * completes a turn the next slot of the level above is moved down, so items reach the first level before they expire.
+ * Items expire on the first tick at or after their deadline, never before it.
+ * <p>
+ * The wheel does not keep time itself: {@link #advance(long)} is called with the current time and returns the items
+ * that expired since the previous call.
+ */
+public final class TimingWheel<T> {
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<List<Entry<T>>[]> levels = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+
+    private long currentTick;
+    private int scheduled;
+
+    public TimingWheel(Duration tick, int wheelSize, long startMillis) {
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("Timing wheel tick must be at least 1ms");
+        }
+
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("Timing wheel size must be greater than or equal to 2");
+        }
+
+        this.tickMillis = tick.toMillis();
+        this.wheelSize = wheelSize;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    public synchronized void add(T item, long deadlineMillis) {
+        place(new Entry<>(item, Math.ceilDiv(deadlineMillis, tickMillis)));
+    }
+
+    /**
+     * Moves the wheel to the given time and returns the items whose deadline it passed, including the ones added with
+     * a deadline already passed.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < target) {
+            if (scheduled == 0) {
+                currentTick = target;
+                break;
+            }
+
+            currentTick++;
+            // Higher levels first, so the items they move down are in place when the lower slot is reached
+            int top = 0;
+            for (long span = wheelSize; top + 1 < levels.size() && currentTick % span == 0; span *= wheelSize) {
+                top++;
+            }
+            for (int level = top; level >= 0; level--) {
+                List<Entry<T>> entries = take(level);
+                for (Entry<T> entry : entries) {
+                    place(entry);
+                }
+            }
+        }
+
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return scheduled + due.size();
+    }
+
+    private void place(Entry<T> entry) {
+        long remaining = entry.tick() - currentTick;
+        if (remaining <= 0) {
+            due.add(entry.item());
+            return;
+        }
+
+        int level = 0;
+        long unit = 1;
+        while (remaining >= unit * wheelSize && unit <= Long.MAX_VALUE / wheelSize / wheelSize) {
+            level++;
+            unit *= wheelSize;
+        }
+        while (levels.size() <= level) {
+            @SuppressWarnings("unchecked")
+            List<Entry<T>>[] slots = new List[wheelSize];
+            levels.add(slots);
+        }
+
+        List<Entry<T>>[] slots = levels.get(level);
+        int slot = (int) Math.floorMod(entry.tick() / unit, (long) wheelSize);
+        if (slots[slot] == null) {
+            slots[slot] = new ArrayList<>();
+        }
+        slots[slot].add(entry);
+        scheduled++;
+    }
+
+    // Empties the slot of the level the current tick is on
+    private List<Entry<T>> take(int level) {
+        if (level >= levels.size()) {
+            return List.of();
+        }
+
+        long unit = 1;
+        for (int i = 0; i < level; i++) {
+            unit *= wheelSize;
+        }
+        List<Entry<T>>[] slots = levels.get(level);
+        int slot = (int) Math.floorMod(currentTick / unit, (long) wheelSize);
+        List<Entry<T>> entries = slots[slot];
+        if (entries == null) {
+            return List.of();
+        }
+
+        slots[slot] = null;
+        scheduled -= entries.size();
+        return entries;
+    }
+
+    private record Entry<T>(T item, long tick) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.challenge.api.utils;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.util.StringUtils;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+
+@UtilityClass
+public class UuidUtils {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // The order the database sorts uuid columns in, byte by byte unsigned, where UUID.compareTo compares signed longs
+    public static final Comparator<UUID> DATABASE_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    /**
+     * Version 7 UUID (RFC 9562): 48 bits of Unix epoch milliseconds followed by random bits, so keys
+     * generated one after the other land next to each other in the primary key index.
+     */
+    public static UUID randomV7() {
+        long mostSignificantBits = (System.currentTimeMillis() << 16) | 0x7000L | (RANDOM.nextLong() & 0x0FFFL);
+        long leastSignificantBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    // Smallest version 7 UUID of the given millisecond, every id generated before it sorts below it
+    public static UUID minV7(Instant instant) {
+        return new UUID((instant.toEpochMilli() << 16) | 0x7000L, 0x8000000000000000L);
+    }
+
+    // Ids come from paths and request bodies as text, anything that is not a UUID cannot exist
+    public static Optional<UUID> parse(String id) {
+        if (!StringUtils.hasText(id)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
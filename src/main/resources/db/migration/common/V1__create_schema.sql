@@ -0,0 +1,51 @@
+-- Schema previously generated by Hibernate on startup, written in the SQL both H2 and Postgres accept
+CREATE TABLE products (
+    product_id          UUID           NOT NULL,
+    product_name        VARCHAR(50)    NOT NULL,
+    product_description VARCHAR(200)   NOT NULL,
+    on_hand             NUMERIC(38, 0) NOT NULL CHECK (on_hand >= 0),
+    unit_price          NUMERIC(5, 0)  NOT NULL CHECK (unit_price >= 0),
+    active              BOOLEAN        NOT NULL,
+    PRIMARY KEY (product_id)
+);
+
+CREATE TABLE orders (
+    order_id      UUID           NOT NULL,
+    customer_name VARCHAR(100)   NOT NULL,
+    order_date    TIMESTAMP(6)   NOT NULL,
+    total         NUMERIC(38, 2) NOT NULL,
+    active        BOOLEAN        NOT NULL,
+    PRIMARY KEY (order_id)
+);
+
+CREATE TABLE order_items (
+    order_item_id UUID           NOT NULL,
+    order_id      UUID           NOT NULL,
+    product_id    UUID           NOT NULL,
+    quantity      NUMERIC(38, 0) NOT NULL CHECK (quantity >= 1),
+    unit_price    NUMERIC(38, 2) NOT NULL CHECK (unit_price >= 1),
+    active        BOOLEAN        NOT NULL,
+    PRIMARY KEY (order_item_id)
+);
+
+-- Postgres does not index foreign keys by itself: items are read by order and checked by product.
+-- Created before the constraints so H2 uses them instead of adding its own.
+CREATE INDEX idx_order_items_order_id ON order_items (order_id);
+CREATE INDEX idx_order_items_product_id ON order_items (product_id);
+ALTER TABLE order_items ADD CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders (order_id);
+ALTER TABLE order_items ADD CONSTRAINT fk_order_items_product FOREIGN KEY (product_id) REFERENCES products (product_id);
+
+CREATE TABLE order_total_outbox (
+    outbox_id  UUID         NOT NULL,
+    order_id   UUID         NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (outbox_id)
+);
+
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(300) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    response        TEXT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (idempotency_key)
+);
@@ -0,0 +1,31 @@
+-- Soft-deleted rows moved out of the hot tables by the archiver, without constraints between them
+CREATE TABLE products_archive (
+    product_id          UUID           NOT NULL,
+    product_name        VARCHAR(50)    NOT NULL,
+    product_description VARCHAR(200)   NOT NULL,
+    on_hand             NUMERIC(38, 0) NOT NULL,
+    unit_price          NUMERIC(5, 0)  NOT NULL,
+    archived_at         TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (product_id)
+);
+
+CREATE TABLE orders_archive (
+    order_id      UUID           NOT NULL,
+    customer_name VARCHAR(100)   NOT NULL,
+    order_date    TIMESTAMP(6)   NOT NULL,
+    total         NUMERIC(38, 2) NOT NULL,
+    archived_at   TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (order_id)
+);
+
+CREATE TABLE order_items_archive (
+    order_item_id UUID           NOT NULL,
+    order_id      UUID           NOT NULL,
+    product_id    UUID           NOT NULL,
+    quantity      NUMERIC(38, 0) NOT NULL,
+    unit_price    NUMERIC(38, 2) NOT NULL,
+    archived_at   TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (order_item_id)
+);
+
+CREATE INDEX idx_order_items_archive_order_id ON order_items_archive (order_id);
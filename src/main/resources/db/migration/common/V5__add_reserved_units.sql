@@ -0,0 +1,6 @@
+-- Units held by active order items, moved together with on_hand by every reservation so the in-memory inventory
+-- engine can rebuild on_hand from order_items after losing changes it had not written yet
+ALTER TABLE products ADD COLUMN reserved_units NUMERIC(38, 0) DEFAULT 0 NOT NULL;
+
+UPDATE products SET reserved_units = (SELECT COALESCE(SUM(i.quantity), 0) FROM order_items i
+                                      WHERE i.product_id = products.product_id AND i.active = TRUE);
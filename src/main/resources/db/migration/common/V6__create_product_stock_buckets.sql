@@ -0,0 +1,11 @@
+-- Rows the units on hand of a split product are spread over, so its reservations do not all lock the product row.
+-- Units released to the product row stay there until the next rebalance, on hand is the sum of the row and buckets
+CREATE TABLE product_stock_buckets (
+    product_id     UUID           NOT NULL,
+    bucket         INTEGER        NOT NULL,
+    on_hand        NUMERIC(38, 0) NOT NULL CHECK (on_hand >= 0),
+    reserved_units NUMERIC(38, 0) NOT NULL,
+    PRIMARY KEY (product_id, bucket)
+);
+
+ALTER TABLE product_stock_buckets ADD CONSTRAINT fk_product_stock_buckets_product FOREIGN KEY (product_id) REFERENCES products (product_id);
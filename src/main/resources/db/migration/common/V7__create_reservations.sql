@@ -0,0 +1,14 @@
+-- Units held for a customer until the reservation is confirmed into an order item or expires. The units are reserved
+-- like the ones of an order item, so they count in reserved_units until the row is deleted
+CREATE TABLE reservations (
+    reservation_id UUID           NOT NULL,
+    product_id     UUID           NOT NULL,
+    quantity       NUMERIC(38, 0) NOT NULL CHECK (quantity >= 1),
+    expires_at     TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (reservation_id)
+);
+
+ALTER TABLE reservations ADD CONSTRAINT fk_reservations_product FOREIGN KEY (product_id) REFERENCES products (product_id);
+CREATE INDEX idx_reservations_product_id ON reservations (product_id);
+-- Swept for reservations no node expired
+CREATE INDEX idx_reservations_expires_at ON reservations (expires_at);
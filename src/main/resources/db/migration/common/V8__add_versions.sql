@@ -0,0 +1,4 @@
+-- Optimistic locking: entity updates check and bump the version they loaded, soft deletes bump it
+ALTER TABLE products ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE orders ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE order_items ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,9 @@
+-- Soft deletes record when they happened, the archiver keeps a deleted row for archive.min-age after that
+ALTER TABLE products ADD COLUMN deleted_at TIMESTAMP(6);
+ALTER TABLE orders ADD COLUMN deleted_at TIMESTAMP(6);
+ALTER TABLE order_items ADD COLUMN deleted_at TIMESTAMP(6);
+
+-- When the rows deleted so far were deleted is unknown, their grace period starts now
+UPDATE products SET deleted_at = CURRENT_TIMESTAMP WHERE active = FALSE;
+UPDATE orders SET deleted_at = CURRENT_TIMESTAMP WHERE active = FALSE;
+UPDATE order_items SET deleted_at = CURRENT_TIMESTAMP WHERE active = FALSE;
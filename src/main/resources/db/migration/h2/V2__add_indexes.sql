@@ -0,0 +1,8 @@
+-- H2 has no partial indexes, the active flag leads the key instead so the same queries can seek on it
+CREATE INDEX idx_products_active_id ON products (active, product_id);
+CREATE INDEX idx_orders_active_id ON orders (active, order_id);
+CREATE INDEX idx_order_items_active_id ON order_items (active, order_item_id);
+
+CREATE INDEX idx_orders_order_date ON orders (order_date);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
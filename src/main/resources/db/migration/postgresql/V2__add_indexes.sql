@@ -0,0 +1,10 @@
+-- Every ExtendedCrudRepository query and keyset page filters on active = true and orders by id,
+-- so the partial indexes hold only the live rows in id order
+CREATE INDEX idx_products_active_id ON products (product_id) WHERE active = true;
+CREATE INDEX idx_orders_active_id ON orders (order_id) WHERE active = true;
+CREATE INDEX idx_order_items_active_id ON order_items (order_item_id) WHERE active = true;
+
+CREATE INDEX idx_orders_order_date ON orders (order_date);
+
+-- Expired keys are purged by creation time
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
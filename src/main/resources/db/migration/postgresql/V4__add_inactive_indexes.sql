@@ -0,0 +1,4 @@
+-- The archiver pages over the soft-deleted rows in id order, which the partial indexes on active rows do not cover
+CREATE INDEX idx_products_inactive_id ON products (product_id) WHERE active = false;
+CREATE INDEX idx_orders_inactive_id ON orders (order_id) WHERE active = false;
+CREATE INDEX idx_order_items_inactive_id ON order_items (order_item_id) WHERE active = false;
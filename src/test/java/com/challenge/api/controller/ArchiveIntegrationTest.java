@@ -0,0 +1,179 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.ArchiveResult;
+import com.challenge.api.services.ArchiveService;
+import com.challenge.api.services.impl.ArchiveServiceImpl;
+import com.challenge.api.utils.UuidUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ArchiveIntegrationTest extends IntegrationTestsBase {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("archiveService")
+    private ArchiveService archiveService;
+
+    @Test
+    public void deletedRowsAreMovedToTheArchiveTables() throws Exception {
+        UUID retired = product(false);
+        UUID stillSold = product(false);
+        OrderDAO cancelled = order(false, item(true, seededProductId(1)), item(false, seededProductId(2)));
+        OrderDAO live = order(true, item(true, seededProductId(1)), item(false, seededProductId(2)), item(true, stillSold));
+        UUID removedItem = live.getItems().get(1).getId();
+        nextMillisecond();
+
+        mvc.perform(post("/admin/archive").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted());
+        awaitArchived();
+        mvc.perform(get("/admin/archive"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.running", Matchers.is(false)))
+                .andExpect(jsonPath("$.last.orders", Matchers.greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.last.orderItems", Matchers.greaterThanOrEqualTo(3)))
+                .andExpect(jsonPath("$.last.products", Matchers.greaterThanOrEqualTo(1)));
+
+        assertFalse(ordersRepository.existsById(cancelled.getId()));
+        assertEquals(0, count("order_items", "order_id", cancelled.getId()));
+        assertEquals(1, count("orders_archive", "order_id", cancelled.getId()));
+        assertEquals(2, count("order_items_archive", "order_id", cancelled.getId()));
+
+        assertFalse(orderItemsRepository.existsById(removedItem));
+        assertEquals(1, count("order_items_archive", "order_item_id", removedItem));
+        mvc.perform(get("/orders/" + live.getId()).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()", Matchers.is(2)));
+
+        assertFalse(productsRepository.existsById(retired));
+        assertEquals(1, count("products_archive", "product_id", retired));
+        assertTrue(productsRepository.existsById(stillSold), "Products referenced by an order item are kept");
+    }
+
+    @Test
+    public void recentRowsAreNotArchived() {
+        UUID product = product(false);
+        OrderDAO order = order(false, item(false, seededProductId(1)));
+
+        ArchiveResult result = archiver(Duration.ofDays(1), 1_000_000).archive();
+
+        assertEquals(new ArchiveResult(0, 0, 0), result);
+        assertTrue(productsRepository.existsById(product));
+        assertTrue(ordersRepository.existsById(order.getId()));
+    }
+
+    @Test
+    public void rowsAreKeptForTheMinAgeAfterTheirDeletion() {
+        // Created two days ago, deleted now
+        UUID product = UuidUtils.minV7(Instant.now().minus(Duration.ofDays(2)));
+        jdbcTemplate.update("INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, " +
+                "active) VALUES (?, 'Archived', 'Archived product', 10, 10, TRUE)", product);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> productsRepository.softDeleteById(product));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT deleted_at FROM products WHERE product_id = ?",
+                LocalDateTime.class, product));
+        ArchiveService archiver = archiver(Duration.ofDays(1), 1_000_000);
+
+        archiver.archive();
+        assertTrue(productsRepository.existsById(product), "A row deleted now is kept, however old it is");
+
+        jdbcTemplate.update("UPDATE products SET deleted_at = ? WHERE product_id = ?", LocalDateTime.now().minusDays(2), product);
+        archiver.archive();
+        assertFalse(productsRepository.existsById(product));
+        assertEquals(1, count("products_archive", "product_id", product));
+    }
+
+    @Test
+    public void batchesAreThrottledToTheRowsPerSecondBudget() throws Exception {
+        // Leave only the rows of this test to archive
+        archiver(Duration.ZERO, 1_000_000).archive();
+        IntStream.range(0, 30).forEach(i -> product(false));
+        nextMillisecond();
+
+        long start = System.nanoTime();
+        ArchiveResult result = archiver(Duration.ZERO, 100).archive();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(30, result.products());
+        assertTrue(elapsed.compareTo(Duration.ofMillis(300)) >= 0, "30 rows at 100 rows/s took " + elapsed);
+    }
+
+    // The run started by the request goes on after the response
+    private void awaitArchived() throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (archiveService.status().running()) {
+            assertTrue(System.nanoTime() < deadline, "Archiving did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    // Rows are only older than a zero age once their millisecond is over
+    private static void nextMillisecond() throws InterruptedException {
+        Thread.sleep(2);
+    }
+
+    private ArchiveService archiver(Duration minAge, int rowsPerSecond) {
+        return new ArchiveServiceImpl(ordersRepository, orderItemsRepository, productsRepository, transactionManager,
+                new SimpleMeterRegistry(), minAge, 10, rowsPerSecond);
+    }
+
+    private long count(String table, String column, UUID id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?", Long.class, id);
+    }
+
+    private UUID product(boolean active) {
+        ProductDAO product = new ProductDAO(null, "Archived", "Archived product", BigInteger.TEN, BigDecimal.TEN, active);
+        product.setDeletedAt(deletedAt(active));
+        return productsRepository.save(product).getId();
+    }
+
+    private static OrderItemDAO item(boolean active, UUID productId) {
+        OrderItemDAO item = new OrderItemDAO(null, BigInteger.ONE, BigDecimal.TEN, active, new ProductDAO(productId), null);
+        item.setDeletedAt(deletedAt(active));
+        return item;
+    }
+
+    private OrderDAO order(boolean active, OrderItemDAO... items) {
+        OrderDAO order = new OrderDAO(null, "Archived", LocalDateTime.now(), BigDecimal.TEN, active, new ArrayList<>(List.of(items)));
+        order.setDeletedAt(deletedAt(active));
+        order.getItems().forEach(item -> item.setOrder(order));
+        return ordersRepository.save(order);
+    }
+
+    // Rows saved inactive are deleted as they are created
+    private static LocalDateTime deletedAt(boolean active) {
+        return active ? null : LocalDateTime.now();
+    }
+}
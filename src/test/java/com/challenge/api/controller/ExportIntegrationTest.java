@@ -0,0 +1,97 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportIntegrationTest extends IntegrationTestsBase {
+    private static final String CUSTOMER_NAME = "Doe, \"Jane\"";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void ordersAreExportedAsCsvWithOneRowPerItem() throws Exception {
+        OrderDAO order = order(CUSTOMER_NAME, 2);
+
+        String csv = mvc.perform(get("/orders/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=orders.csv"))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = Arrays.asList(csv.split("\r\n"));
+
+        assertEquals("order_id,customer_name,total,item_id,product_id,product_name,price,quantity", lines.getFirst());
+        for (OrderItemDAO item : order.getItems()) {
+            String row = String.join(",", order.getId().toString(), "\"Doe, \"\"Jane\"\"\"", "20.00",
+                    item.getId().toString(), seededProductId(1).toString(), "Product 1", "10.00", "1");
+            assertTrue(lines.contains(row), "Missing row " + row);
+        }
+    }
+
+    @Test
+    public void ordersAreExportedAsNdjson() throws Exception {
+        OrderDAO order = order("Customer 1", 3);
+
+        String ndjson = mvc.perform(get("/orders/export").param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<OrderRow> rows = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            OrderRow row = objectMapper.readValue(line, OrderRow.class);
+            if (row.orderId().equals(order.getId())) {
+                rows.add(row);
+            }
+        }
+        assertEquals(3, rows.size());
+        assertTrue(rows.stream().allMatch(row -> row.productId().equals(seededProductId(1)) && row.quantity() == 1));
+    }
+
+    @Test
+    public void productsAreExported() throws Exception {
+        String csv = mvc.perform(get("/products/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(csv.startsWith("id,name,description,on_hand,unit_price\r\n"));
+        assertTrue(csv.contains(seededProductId(2) + ",Product 2,Product 2 Description,"));
+    }
+
+    @Test
+    public void unsupportedFormatIsRejected() throws Exception {
+        mvc.perform(get("/orders/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private OrderDAO order(String customerName, int items) {
+        OrderDAO order = new OrderDAO(null, customerName, LocalDateTime.now(),
+                BigDecimal.valueOf(items * 10L), true, new ArrayList<>());
+        for (int i = 0; i < items; i++) {
+            order.getItems().add(new OrderItemDAO(null, BigInteger.ONE, new BigDecimal("10.00"), true,
+                    new ProductDAO(seededProductId(1)), order));
+        }
+        return ordersRepository.save(order);
+    }
+}
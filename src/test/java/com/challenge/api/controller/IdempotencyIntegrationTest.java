@@ -0,0 +1,222 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.repositories.IdempotencyKeysRepository;
+import com.challenge.api.services.CrudService;
+import com.challenge.api.services.IdempotencyService;
+import com.challenge.api.services.impl.IdempotencyServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class IdempotencyIntegrationTest extends IntegrationTestsBase {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyKeysRepository idempotencyKeysRepository;
+
+    @Autowired
+    @Qualifier("ordersService")
+    private CrudService<OrderRequest, OrderResponse, String> ordersService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void retriedOrderIsCreatedOnceAndReplayedFromMemory() throws Exception {
+        UUID productId = product(10);
+        String body = objectMapper.writeValueAsString(orderRequest(productId, 3));
+        String key = UUID.randomUUID().toString();
+
+        String created = createOrder(key, body);
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        String replayed = createOrder(key, body);
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(created, replayed);
+        assertEquals(0, statements, "A replay answered from memory does not reach the database");
+        assertEquals(BigInteger.valueOf(7), productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void replayOnAnotherNodeOnlyReadsTheKey() throws Exception {
+        UUID productId = product(10);
+        OrderRequest request = orderRequest(productId, 3);
+        String key = UUID.randomUUID().toString();
+        OrderResponse created = objectMapper.readValue(createOrder(key, objectMapper.writeValueAsString(request)), OrderResponse.class);
+
+        // A node that has not seen the key yet, like another instance or this one after a restart
+        IdempotencyService otherNode = new IdempotencyServiceImpl(idempotencyKeysRepository, objectMapper,
+                transactionManager, new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        OrderResponse replayed = otherNode.execute("orders", key, request, OrderResponse.class,
+                () -> ordersService.create(request));
+        long statements = statistics.getPrepareStatementCount();
+        long productLoads = statistics.getEntityStatistics(ProductDAO.class.getName()).getLoadCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(created, replayed);
+        assertEquals(1, statements, "Only the stored key is read");
+        assertEquals(0, productLoads);
+        assertEquals(BigInteger.valueOf(7), productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void expiredKeyIsNotReplayedBeforeItIsPurged() throws Exception {
+        UUID productId = product(10);
+        OrderRequest request = orderRequest(productId, 3);
+        String key = UUID.randomUUID().toString();
+        OrderResponse created = objectMapper.readValue(createOrder(key, objectMapper.writeValueAsString(request)), OrderResponse.class);
+
+        // A node whose ttl the stored key is already past
+        Thread.sleep(10);
+        IdempotencyService otherNode = new IdempotencyServiceImpl(idempotencyKeysRepository, objectMapper,
+                transactionManager, new SimpleMeterRegistry(), 100, Duration.ofMillis(5));
+        OrderResponse recreated = otherNode.execute("orders", key, request, OrderResponse.class,
+                () -> ordersService.create(request));
+
+        assertNotEquals(created.getId(), recreated.getId());
+        assertEquals(BigInteger.valueOf(4), productsRepository.findById(productId).orElseThrow().getOnHand());
+        assertTrue(idempotencyKeysRepository.findById("orders:" + key).orElseThrow().getCreatedAt()
+                .isAfter(LocalDateTime.now().minusSeconds(1)));
+    }
+
+    @Test
+    public void concurrentRetriesCreateASingleOrder() throws Exception {
+        UUID productId = product(100);
+        OrderRequest request = orderRequest(productId, 1);
+        String key = UUID.randomUUID().toString();
+        IdempotencyService idempotencyService = new IdempotencyServiceImpl(idempotencyKeysRepository, objectMapper,
+                transactionManager, new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+
+        List<Future<OrderResponse>> responses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            Callable<OrderResponse> retry = () -> idempotencyService.execute("orders", key, request, OrderResponse.class,
+                    () -> ordersService.create(request));
+            for (int i = 0; i < THREADS; i++) {
+                responses.add(executor.submit(retry));
+            }
+        }
+
+        Set<String> orderIds = new HashSet<>();
+        for (Future<OrderResponse> response : responses) {
+            orderIds.add(response.get().getId());
+        }
+        assertEquals(1, orderIds.size());
+        assertEquals(BigInteger.valueOf(99), productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void keyCannotBeReusedForAnotherRequest() throws Exception {
+        UUID productId = product(10);
+        String key = UUID.randomUUID().toString();
+        createOrder(key, objectMapper.writeValueAsString(orderRequest(productId, 1)));
+
+        mvc.perform(post("/orders")
+                        .header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderRequest(productId, 2))))
+                .andExpect(status().isBadRequest());
+        assertEquals(BigInteger.valueOf(9), productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void failedRequestCanBeRetriedWithTheSameKey() throws Exception {
+        UUID productId = product(1);
+        String body = objectMapper.writeValueAsString(orderRequest(productId, 2));
+        String key = UUID.randomUUID().toString();
+
+        mvc.perform(post("/orders").header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict());
+
+        ProductDAO product = productsRepository.findById(productId).orElseThrow();
+        product.setOnHand(BigInteger.TEN);
+        productsRepository.save(product);
+
+        createOrder(key, body);
+        assertEquals(BigInteger.valueOf(8), productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void retriedOrderItemIsCreatedOnce() throws Exception {
+        UUID productId = product(10);
+        OrderDAO order = ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new ArrayList<>()));
+        String body = objectMapper.writeValueAsString(new OrderItemRequest(order.getId().toString(), productId.toString(), 2));
+        String key = UUID.randomUUID().toString();
+
+        Set<String> itemIds = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            String response = mvc.perform(post("/order-items").header(IdempotencyService.HEADER, key)
+                            .contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            itemIds.add(JsonPath.read(response, "$.id"));
+        }
+
+        assertEquals(1, itemIds.size());
+        assertEquals(BigInteger.valueOf(8), productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    private String createOrder(String key, String body) throws Exception {
+        return mvc.perform(post("/orders")
+                        .header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private UUID product(int onHand) {
+        return productsRepository.save(new ProductDAO(null, "Retried", "Retried product",
+                BigInteger.valueOf(onHand), BigDecimal.TEN, true)).getId();
+    }
+
+    private static OrderRequest orderRequest(UUID productId, int quantity) {
+        OrderRequest request = new OrderRequest();
+        request.setCustomerName("Customer 1");
+        request.setItems(List.of(new OrderItemRequest(null, productId.toString(), quantity)));
+        return request;
+    }
+}
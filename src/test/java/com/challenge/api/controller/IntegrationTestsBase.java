@@ -4,6 +4,9 @@ import com.challenge.api.ApiApplication;
 import com.challenge.api.repositories.OrderItemsRepository;
 import com.challenge.api.repositories.OrdersRepository;
 import com.challenge.api.repositories.ProductsRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -11,6 +14,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.UUID;
+
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(
         webEnvironment = SpringBootTest.WebEnvironment.MOCK,
@@ -28,4 +33,16 @@ public abstract class IntegrationTestsBase {
 
     @Autowired
     protected OrdersRepository ordersRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Ids of the products inserted by db/seed/R__seed_products.sql
+    protected static UUID seededProductId(int number) {
+        return UUID.fromString(String.format("00000000-0000-7000-8000-%012d", number));
+    }
+
+    protected Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
 }
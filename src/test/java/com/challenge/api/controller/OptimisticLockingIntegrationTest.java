@@ -0,0 +1,138 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.challenge.api.controller.OrderItemsIntegrationTest.asJsonString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class OptimisticLockingIntegrationTest extends IntegrationTestsBase {
+    private static final int STOCK = 1000;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void updateOfAProductDeletedSinceItWasLoadedFails() {
+        UUID productId = productsRepository.save(new ProductDAO(null, "Versioned", "Versioned product",
+                BigInteger.TEN, BigDecimal.TEN, true)).getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate concurrentTransaction = new TransactionTemplate(transactionManager);
+        concurrentTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> transaction.executeWithoutResult(status -> {
+            ProductDAO loaded = productsRepository.findById(productId).orElseThrow();
+            concurrentTransaction.executeWithoutResult(concurrent -> productsRepository.softDeleteById(productId));
+
+            loaded.setName("Renamed");
+            productsRepository.saveAndFlush(loaded);
+        }));
+
+        assertTrue(productsRepository.findById(productId).isEmpty(), "The update did not restore the deleted product");
+    }
+
+    @Test
+    public void restockOfAProductReservedSinceItWasLoadedFails() {
+        UUID productId = productsRepository.save(new ProductDAO(null, "Restocked", "Restocked product",
+                BigInteger.TEN, BigDecimal.TEN, true)).getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate concurrentTransaction = new TransactionTemplate(transactionManager);
+        concurrentTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> transaction.executeWithoutResult(status -> {
+            ProductDAO loaded = productsRepository.findById(productId).orElseThrow();
+            concurrentTransaction.executeWithoutResult(concurrent ->
+                    assertEquals(1, productsRepository.reserveStock(productId, BigInteger.valueOf(3))));
+
+            loaded.setOnHand(BigInteger.valueOf(50));
+            productsRepository.saveAndFlush(loaded);
+        }));
+
+        ProductDAO after = productsRepository.findById(productId).orElseThrow();
+        assertEquals(BigInteger.valueOf(7), after.getOnHand(), "The reservation was not overwritten");
+        assertEquals(BigInteger.valueOf(3), after.getReservedUnits());
+    }
+
+    @Test
+    public void concurrentOrderUpdatesMoveTheStockOfTheirLinesOnce() throws Exception {
+        ProductDAO contended = new ProductDAO(null, "Contended", "Contended product", BigInteger.valueOf(STOCK - 1),
+                BigDecimal.TEN, true);
+        contended.setReservedUnits(BigInteger.ONE);
+        ProductDAO product = productsRepository.save(contended);
+        OrderDAO order = new OrderDAO(null, "Customer 1", LocalDateTime.now(), BigDecimal.TEN, true, new LinkedList<>());
+        order.getItems().add(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.TEN, true, product, order));
+        ordersRepository.save(order);
+        orderItemsRepository.saveAll(order.getItems());
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                int quantity = thread + 2;
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return mvc.perform(put("/orders/" + order.getId())
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(asJsonString(orderRequest(product.getId(), quantity))))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> status : statuses) {
+                int code = status.get();
+                assertFalse(code != 201 && code != 409, "Unexpected status " + code);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Whichever update won, the units on hand and the units of the order add up to the stock
+        BigInteger ordered = orderItemsRepository.sumActiveQuantitiesByProduct(order.getId()).getFirst().quantity();
+        ProductDAO after = productsRepository.findById(product.getId()).orElseThrow();
+        assertEquals(BigInteger.valueOf(STOCK), after.getOnHand().add(ordered));
+        assertEquals(ordered, after.getReservedUnits());
+    }
+
+    @Test
+    public void contentionIsListedPerScope() throws Exception {
+        mvc.perform(get("/admin/contention").param("scope", "products")).andExpect(status().isOk());
+        mvc.perform(get("/admin/contention").param("limit", "0")).andExpect(status().isBadRequest());
+    }
+
+    private static OrderRequest orderRequest(UUID productId, int quantity) {
+        OrderRequest request = new OrderRequest();
+        request.setCustomerName("Customer 1");
+        request.setItems(List.of(new OrderItemRequest(null, productId.toString(), quantity)));
+        return request;
+    }
+}
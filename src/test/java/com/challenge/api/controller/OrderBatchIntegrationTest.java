@@ -0,0 +1,190 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderBatchResult;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.impl.OrderBatchServiceImpl;
+import com.challenge.api.utils.UuidUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class OrderBatchIntegrationTest extends IntegrationTestsBase {
+    private static final String PATH = "/orders/batch";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("ordersService")
+    private CrudService<OrderRequest, OrderResponse, String> ordersService;
+
+    @Autowired
+    @Qualifier("inventoryService")
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void everyLineGetsItsOwnResult() throws Exception {
+        UUID productId = product(5);
+        String body = String.join("\n",
+                order(productId, 2),
+                order(productId, 10),
+                order(UuidUtils.randomV7(), 1),
+                "",
+                "{\"customerName\": ",
+                "{\"customerName\": \"Customer\", \"items\": []}",
+                order(productId, 3));
+
+        String response = mvc.perform(post(PATH).contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<OrderBatchResult> results = parse(response);
+
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L), results.stream().map(OrderBatchResult::line).toList());
+        assertEquals(Arrays.asList(null, 409, 404, 400, 400, null),
+                results.stream().map(OrderBatchResult::status).toList());
+        assertEquals("Order items are required", results.get(4).error());
+
+        for (OrderBatchResult created : List.of(results.get(0), results.get(5))) {
+            assertNull(created.error());
+            assertTrue(ordersRepository.existsById(UUID.fromString(created.id())));
+        }
+        assertEquals(BigInteger.ZERO, productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void invalidCustomerNamesAreRejectedLikeSingleOrders() throws Exception {
+        UUID productId = product(3);
+        String body = String.join("\n",
+                order(productId, 1),
+                order(productId, 1).replace("Customer 1", "C"),
+                order(productId, 1));
+
+        List<OrderBatchResult> results = ingest(batchService(3), body);
+
+        assertEquals(Arrays.asList(null, 400, null), results.stream().map(OrderBatchResult::status).toList());
+        assertEquals("Customer name must be between 3 and 100 characters", results.get(1).error());
+        assertEquals(BigInteger.ONE, productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void ordersOfLaterChunksSeeTheStockTakenByEarlierOnes() throws Exception {
+        UUID productId = product(3);
+        String body = IntStream.range(0, 5)
+                .mapToObj(i -> order(productId, 1))
+                .collect(Collectors.joining("\n"));
+
+        List<OrderBatchResult> results = ingest(batchService(2), body);
+
+        assertEquals(Arrays.asList(null, null, null, 409, 409),
+                results.stream().map(OrderBatchResult::status).toList());
+        assertEquals(BigInteger.ZERO, productsRepository.findById(productId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void chunkLooksProductsUpOnceAndInsertsInBatches() throws Exception {
+        int orders = 200;
+        List<UUID> productIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            productIds.add(product(orders));
+        }
+        String body = IntStream.range(0, orders)
+                .mapToObj(i -> orderOf(productIds.get(i % 5), productIds.get((i + 1) % 5)))
+                .collect(Collectors.joining("\n"));
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        List<OrderBatchResult> results = ingest(batchService(orders), body);
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(orders, results.stream().filter(result -> result.id() != null).count());
+        // Product and stock lookups, the lock of the products, one reservation per product and the order and item
+        // inserts in batches of 50
+        long expected = 3 + productIds.size() + Math.ceilDiv(orders, 50) + Math.ceilDiv(orders * 2, 50);
+        assertTrue(statements <= expected, "Batch of " + orders + " orders used " + statements + " statements");
+    }
+
+    private List<OrderBatchResult> ingest(OrderBatchServiceImpl batchService, String body) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        batchService.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), output);
+        return parse(output.toString(StandardCharsets.UTF_8));
+    }
+
+    private OrderBatchServiceImpl batchService(int chunkSize) {
+        return new OrderBatchServiceImpl(ordersRepository, orderItemsRepository, productsRepository, ordersService,
+                inventoryService, objectMapper, transactionManager, chunkSize);
+    }
+
+    private List<OrderBatchResult> parse(String response) throws Exception {
+        List<OrderBatchResult> results = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            OrderBatchResult result = objectMapper.readValue(line, OrderBatchResult.class);
+            assertTrue(result.id() != null ^ result.error() != null, "Either an id or an error: " + line);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private UUID product(int onHand) {
+        return productsRepository.save(new ProductDAO(null, "Batch", "Batch product",
+                BigInteger.valueOf(onHand), BigDecimal.TEN, true)).getId();
+    }
+
+    private String order(UUID productId, int quantity) {
+        OrderRequest request = new OrderRequest();
+        request.setCustomerName("Customer 1");
+        request.setItems(List.of(new OrderItemRequest(null, productId.toString(), quantity)));
+        return write(request);
+    }
+
+    private String orderOf(UUID... productIds) {
+        OrderRequest request = new OrderRequest();
+        request.setCustomerName("Customer 1");
+        request.setItems(Arrays.stream(productIds)
+                .map(productId -> new OrderItemRequest(null, productId.toString(), 1))
+                .toList());
+        return write(request);
+    }
+
+    private String write(OrderRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -34,14 +35,14 @@ public class OrderItemsIntegrationTest extends IntegrationTestsBase {
         orderDAO.setCustomerName("Customer 1");
         orderDAO.setActive(true);
         orderDAO.setLocalDateTime(LocalDateTime.now());
-        orderDAO.setItems(List.of(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.valueOf(10.00), true, new ProductDAO("id_1"), orderDAO)));
+        orderDAO.setItems(List.of(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.valueOf(10.00), true, new ProductDAO(seededProductId(1)), orderDAO)));
         orderDAO.setTotal(BigDecimal.valueOf(10.00));
-        orderId = ordersRepository.save(orderDAO).getId();
+        orderId = ordersRepository.save(orderDAO).getId().toString();
     }
     
     @Test
     public void createOrderItemSuccessfully() throws Exception {
-        OrderItemRequest orderItemRequest = new OrderItemRequest(orderId, "id_1", 1);
+        OrderItemRequest orderItemRequest = new OrderItemRequest(orderId, seededProductId(1).toString(), 1);
 
         MvcResult result = mvc.perform(post("/order-items")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -51,19 +52,16 @@ public class OrderItemsIntegrationTest extends IntegrationTestsBase {
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.id", Matchers.not(Matchers.blankOrNullString())))
                 .andExpect(jsonPath("$.productName", Matchers.is("Product 1")))
-                .andExpect(jsonPath("$.productId", Matchers.is("id_1")))
+                .andExpect(jsonPath("$.productId", Matchers.is(seededProductId(1).toString())))
                 .andExpect(jsonPath("$.price", Matchers.is(10)))
                 .andExpect(jsonPath("$.quantity", Matchers.is(1)))
                 .andReturn();
 
         String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
 
-        // Wait for async total calculation to complete
-        Thread.sleep(1000);
-
-        OrderDAO orderDAO = ordersRepository.findById(orderId).get();
+        OrderDAO orderDAO = ordersRepository.findById(UUID.fromString(orderId)).get();
         assertEquals(20, orderDAO.getTotal().intValue());
-        assertTrue(orderItemsRepository.existsById(id));
+        assertTrue(orderItemsRepository.existsById(UUID.fromString(id)));
     }
 
     @Test
@@ -79,7 +77,7 @@ public class OrderItemsIntegrationTest extends IntegrationTestsBase {
 
     @Test
     public void createOrderItemWithNegativeQuantity() throws Exception {
-        OrderItemRequest orderItemRequest = new OrderItemRequest(orderId, "id_1", -1);
+        OrderItemRequest orderItemRequest = new OrderItemRequest(orderId, seededProductId(1).toString(), -1);
 
         mvc.perform(post("/order-items")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -90,7 +88,7 @@ public class OrderItemsIntegrationTest extends IntegrationTestsBase {
 
     @Test
     public void createOrderItemWithZeroQuantity() throws Exception {
-        OrderItemRequest orderItemRequest = new OrderItemRequest(orderId, "id_1", 0);
+        OrderItemRequest orderItemRequest = new OrderItemRequest(orderId, seededProductId(1).toString(), 0);
 
         mvc.perform(post("/order-items")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -101,7 +99,7 @@ public class OrderItemsIntegrationTest extends IntegrationTestsBase {
 
     @Test
     public void createOrderItemWithNonExistentOrderId() throws Exception {
-        OrderItemRequest orderItemRequest = new OrderItemRequest("non-existent-order-id", "id_1", 1);
+        OrderItemRequest orderItemRequest = new OrderItemRequest("non-existent-order-id", seededProductId(1).toString(), 1);
 
         mvc.perform(post("/order-items")
                         .contentType(MediaType.APPLICATION_JSON)
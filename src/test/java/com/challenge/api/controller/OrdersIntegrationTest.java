@@ -8,24 +8,34 @@ import com.challenge.api.model.dto.OrderRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.JsonPath;
 import org.hamcrest.Matchers;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -36,6 +46,9 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
     private static final String PATH = "/orders";
     private static final String CUSTOMER_NAME = "Customer 1";
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     public void getOrdersWhenNoOrdersInDatabase() throws Exception {
         orderItemsRepository.deleteAll();
@@ -59,6 +72,73 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
                 .andExpect(jsonPath("$.content.length()", Matchers.is(10)));
     }
 
+    @ParameterizedTest(name = "Get orders with page size {0}")
+    @ValueSource(ints = {5, 10, 20})
+    public void getOrdersUsesTheSameNumberOfQueriesForAnyPageSize(int pageSize) throws Exception {
+        orderItemsRepository.deleteAll();
+        ordersRepository.deleteAll();
+        insertOrdersInDatabase(25);
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mvc.perform(get(PATH).param("size", String.valueOf(pageSize)).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", Matchers.is(pageSize)))
+                .andExpect(jsonPath("$.content[0].items[0].productName", Matchers.is("Product 1")));
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        // Page of ids, count and one fetch of the orders with their items and products
+        assertEquals(3, statements);
+    }
+
+    @Test
+    public void scrollOrdersVisitsEveryOrderOnceWithoutCounting() throws Exception {
+        orderItemsRepository.deleteAll();
+        ordersRepository.deleteAll();
+        insertOrdersInDatabase(12);
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Set<String> visited = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MvcResult result = mvc.perform(get(PATH + "/scroll").param("size", "5")
+                            .param("cursor", cursor == null ? "" : cursor)
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            String json = result.getResponse().getContentAsString();
+            List<String> ids = JsonPath.read(json, "$.content[*].id");
+            ids.forEach(id -> assertTrue(visited.add(id), "Order " + id + " is returned only once"));
+            cursor = JsonPath.read(json, "$.nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(12, visited.size());
+        assertEquals(3, pages);
+        // A page of ids and one fetch of the orders per page, never a count query
+        assertEquals(2L * pages, statements);
+    }
+
+    @Test
+    public void scrollOrdersWithInvalidCursor() throws Exception {
+        mvc.perform(get(PATH + "/scroll").param("cursor", "not a cursor")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]", Matchers.is("Invalid cursor")));
+    }
+
     @Test
     public void getOrderByIdSuccessfully() throws Exception {
         OrderDAO orderDAO = insertNewOrderInDatabase();
@@ -67,7 +147,7 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andDo(print())
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id", Matchers.is(orderDAO.getId())))
+                .andExpect(jsonPath("$.id", Matchers.is(orderDAO.getId().toString())))
                 .andExpect(jsonPath("$.customerName", Matchers.is(CUSTOMER_NAME)))
                 .andExpect(jsonPath("$.total", Matchers.is(10.00)))
                 .andExpect(jsonPath("$.items").isArray())
@@ -103,7 +183,7 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
 
         String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
 
-        Optional<OrderDAO> orderDAO = ordersRepository.findById(id);
+        Optional<OrderDAO> orderDAO = ordersRepository.findById(UUID.fromString(id));
 
         assertTrue(orderDAO.isPresent(), "Order is present in the database");
         assertEquals(CUSTOMER_NAME, orderDAO.get().getCustomerName(), "Customer name is correct in the database");
@@ -153,7 +233,7 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
     public void deleteOrderSuccessfully() throws Exception {
         OrderDAO orderDAO = insertNewOrderInDatabase();
 
-        MvcResult productResult = mvc.perform(get("/products/id_1")
+        MvcResult productResult = mvc.perform(get("/products/" + seededProductId(1))
                         .contentType(MediaType.APPLICATION_JSON))
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -176,13 +256,147 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
                 .andDo(print())
                 .andExpect(status().isNotFound());
 
-        mvc.perform(get("/products/id_1")
+        mvc.perform(get("/products/" + seededProductId(1))
                         .contentType(MediaType.APPLICATION_JSON))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.onHand", Matchers.is(onHandBeforeDelete + 1)));
     }
 
+    @Test
+    public void deleteOrderUsesAFixedNumberOfStatements() throws Exception {
+        int lines = 500;
+        int products = 5;
+        OrderDAO orderDAO = new OrderDAO(null, CUSTOMER_NAME, LocalDateTime.now(), BigDecimal.valueOf(lines * 10L), true, new ArrayList<>());
+        IntStream.range(0, lines).forEach(i -> orderDAO.getItems().add(new OrderItemDAO(null, BigInteger.ONE,
+                BigDecimal.TEN, true, new ProductDAO(seededProductId(1 + i % products)), orderDAO)));
+        UUID orderId = ordersRepository.save(orderDAO).getId();
+        List<BigInteger> onHandBefore = onHand(products);
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mvc.perform(delete(PATH + "/" + orderId).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        long statements = statistics.getPrepareStatementCount();
+        long entitiesLoaded = statistics.getEntityStatistics(OrderDAO.class.getName()).getLoadCount()
+                + statistics.getEntityStatistics(ProductDAO.class.getName()).getLoadCount();
+        statistics.setStatisticsEnabled(false);
+
+        // Order soft delete, quantities per product, one stock update per product, the items select and their
+        // batched soft delete, which goes through the session to keep the other cached items
+        assertEquals(4 + products, statements);
+        assertEquals(0, entitiesLoaded, "No order or product entity is loaded");
+        List<BigInteger> onHandAfter = onHand(products);
+        for (int i = 0; i < products; i++) {
+            assertEquals(onHandBefore.get(i).add(BigInteger.valueOf(lines / products)), onHandAfter.get(i));
+        }
+        assertEquals(0, orderItemsRepository.sumActiveTotalByOrderId(orderId).signum());
+
+        mvc.perform(delete(PATH + "/" + orderId).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+        assertEquals(onHandAfter, onHand(products), "Deleting twice does not restore the stock twice");
+    }
+
+    @Test
+    public void updateOrderWritesOnlyTheChangedLines() throws Exception {
+        int lines = 300;
+        UUID orderId = insertOrderInDatabase(IntStream.range(0, lines).mapToObj(i -> 1 + i % 5).toList());
+        List<OrderItemRequest> items = new ArrayList<>(IntStream.range(0, lines).mapToObj(i -> orderItem(1 + i % 5, 1)).toList());
+        items.set(lines - 1, orderItem(5, 2));
+        BigInteger onHandBefore = onHand(5).get(4);
+        entityManagerFactory.getCache().evictAll();
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mvc.perform(put(PATH + "/" + orderId).content(asJsonString(orderRequest(items))).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.items.length()", Matchers.is(lines)))
+                .andExpect(jsonPath("$.total", Matchers.is(lines * 10 + 10.0)));
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        // Order and its items, one stock update, the renamed order, one item update batch, total delta, outbox entry,
+        // the version bump of the order and the response
+        assertEquals(9, statements);
+        assertEquals(onHandBefore.subtract(BigInteger.ONE), onHand(5).get(4));
+    }
+
+    @Test
+    public void createOrderStatementsGrowPerProductNotPerLine() throws Exception {
+        int lines = 120;
+        int products = 12;
+        List<String> productIds = productsRepository.saveAll(IntStream.range(0, products)
+                        .mapToObj(i -> new ProductDAO(null, "Lines " + i, "Lines product " + i, BigInteger.TEN, BigDecimal.ONE, true))
+                        .toList())
+                .stream()
+                .map(product -> product.getId().toString())
+                .toList();
+        List<OrderItemRequest> items = IntStream.range(0, lines)
+                .mapToObj(line -> new OrderItemRequest(null, productIds.get(line % products), 1))
+                .toList();
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mvc.perform(post(PATH).content(asJsonString(orderRequest(items))).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.items.length()", Matchers.is(lines)))
+                .andExpect(jsonPath("$.total", Matchers.is((double) lines)));
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        // One insert for the order, one product lookup, one guarded reservation per distinct product
+        // and the item inserts shared in JDBC batches
+        assertTrue(statements <= 2 + products + Math.ceilDiv(lines, 50) + 1,
+                "Order with " + lines + " lines of " + products + " products used " + statements + " statements");
+    }
+
+    @Test
+    public void updateOrderAddsChangesAndRemovesLines() throws Exception {
+        UUID orderId = insertOrderInDatabase(List.of(1, 2, 3));
+        List<BigInteger> onHandBefore = onHand(4);
+
+        mvc.perform(put(PATH + "/" + orderId)
+                        .content(asJsonString(orderRequest(List.of(orderItem(1, 3), orderItem(2, 1), orderItem(4, 2)))))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.customerName", Matchers.is("Customer 2")))
+                .andExpect(jsonPath("$.items.length()", Matchers.is(3)))
+                .andExpect(jsonPath("$.total", Matchers.is(120.0)));
+
+        List<BigInteger> onHandAfter = onHand(4);
+        assertEquals(onHandBefore.get(0).subtract(BigInteger.TWO), onHandAfter.get(0));
+        assertEquals(onHandBefore.get(1), onHandAfter.get(1));
+        assertEquals(onHandBefore.get(2).add(BigInteger.ONE), onHandAfter.get(2));
+        assertEquals(onHandBefore.get(3).subtract(BigInteger.TWO), onHandAfter.get(3));
+        assertEquals(0, BigDecimal.valueOf(120).compareTo(ordersRepository.findById(orderId).orElseThrow().getTotal()));
+    }
+
+    @Test
+    public void unsuccessfulOrderUpdateWhenOutOfStock() throws Exception {
+        UUID orderId = insertOrderInDatabase(List.of(1, 2));
+        List<BigInteger> onHandBefore = onHand(2);
+        int tooMany = onHandBefore.get(1).intValue() + 2;
+
+        mvc.perform(put(PATH + "/" + orderId)
+                        .content(asJsonString(orderRequest(List.of(orderItem(2, tooMany)))))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+        assertEquals(onHandBefore, onHand(2));
+        mvc.perform(get(PATH + "/" + orderId).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()", Matchers.is(2)));
+    }
+
     public static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
@@ -208,7 +422,28 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
     }
 
     private static OrderItemRequest orderItem(int number, int quantity) {
-        return new OrderItemRequest(null, "id_" + number, quantity);
+        return new OrderItemRequest(null, seededProductId(number).toString(), quantity);
+    }
+
+    private static OrderRequest orderRequest(List<OrderItemRequest> items) {
+        OrderRequest request = new OrderRequest();
+        request.setCustomerName("Customer 2");
+        request.setItems(items);
+        return request;
+    }
+
+    // One line of one unit at 10.00 per product number
+    private UUID insertOrderInDatabase(List<Integer> products) {
+        OrderDAO orderDAO = new OrderDAO(null, CUSTOMER_NAME, LocalDateTime.now(), BigDecimal.valueOf(products.size() * 10L), true, new ArrayList<>());
+        products.forEach(number -> orderDAO.getItems().add(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.TEN, true,
+                new ProductDAO(seededProductId(number)), orderDAO)));
+        return ordersRepository.save(orderDAO).getId();
+    }
+
+    private List<BigInteger> onHand(int products) {
+        return IntStream.rangeClosed(1, products)
+                .mapToObj(i -> productsRepository.findById(seededProductId(i)).orElseThrow().getOnHand())
+                .toList();
     }
 
     private void insertOrdersInDatabase(int numberOfOrders) {
@@ -222,7 +457,7 @@ public class OrdersIntegrationTest extends IntegrationTestsBase {
         orderDAO.setCustomerName(CUSTOMER_NAME);
         orderDAO.setActive(true);
         orderDAO.setLocalDateTime(LocalDateTime.now());
-        orderDAO.setItems(List.of(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.valueOf(10.00), true, new ProductDAO("id_1"), orderDAO)));
+        orderDAO.setItems(List.of(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.valueOf(10.00), true, new ProductDAO(seededProductId(1)), orderDAO)));
         orderDAO.setTotal(BigDecimal.valueOf(10.00));
         return ordersRepository.save(orderDAO);
     }
@@ -0,0 +1,189 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.model.dto.ReservationRequest;
+import com.challenge.api.repositories.ReservationsRepository;
+import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.OrderTotalService;
+import com.challenge.api.services.ReservationService;
+import com.challenge.api.services.impl.ReservationServiceImpl;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hamcrest.Matchers;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.challenge.api.controller.OrderItemsIntegrationTest.asJsonString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ReservationIntegrationTest extends IntegrationTestsBase {
+    // Past the configured ttl of every reservation the tests create
+    private static final long LATER = System.currentTimeMillis() + Duration.ofDays(1).toMillis();
+
+    @Autowired
+    @Qualifier("reservationService")
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationsRepository reservationsRepository;
+
+    @Autowired
+    @Qualifier("productsService")
+    private CrudService<Product, Product, String> productService;
+
+    @Autowired
+    @Qualifier("inventoryService")
+    private InventoryService inventoryService;
+
+    @Autowired
+    @Qualifier("orderTotalService")
+    private OrderTotalService orderTotalService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void reservedUnitsAreHeldUntilConfirmedIntoAnOrderItem() throws Exception {
+        UUID productId = product(10);
+        String reservationId = reserve(productId, 4)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.productId", Matchers.is(productId.toString())))
+                .andExpect(jsonPath("$.quantity", Matchers.is(4)))
+                .andExpect(jsonPath("$.expiresAt", Matchers.notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String id = JsonPath.read(reservationId, "$.id");
+        assertOnHand(productId, 6);
+        mvc.perform(get("/reservations/" + id)).andExpect(status().isOk());
+
+        String orderId = order();
+        mvc.perform(post("/reservations/" + id + "/confirm").param("orderId", orderId))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.productId", Matchers.is(productId.toString())))
+                .andExpect(jsonPath("$.quantity", Matchers.is(4)));
+
+        assertOnHand(productId, 6);
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(ordersRepository.findById(UUID.fromString(orderId)).orElseThrow().getTotal()));
+        mvc.perform(get("/reservations/" + id)).andExpect(status().isNotFound());
+        mvc.perform(post("/reservations/" + id + "/confirm").param("orderId", orderId)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void cancelledReservationsReturnTheirUnits() throws Exception {
+        UUID productId = product(10);
+        String id = JsonPath.read(reserve(productId, 10).andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        reserve(productId, 1).andExpect(status().isConflict());
+
+        mvc.perform(delete("/reservations/" + id)).andExpect(status().isNoContent());
+
+        assertOnHand(productId, 10);
+        mvc.perform(delete("/reservations/" + id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void expiredReservationsReturnTheirUnitsWithOneUpdatePerProduct() throws Exception {
+        // Leaves only the reservations of this test in the wheel, due on the next expiry as it is now ahead of them
+        reservationService.expire(LATER);
+        UUID first = product(100);
+        UUID second = product(100);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(reservation(i % 3 == 0 ? second : first, 2));
+        }
+        assertOnHand(first, 60);
+        assertOnHand(second, 80);
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        int expired = reservationService.expire(LATER);
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(30, expired);
+        assertEquals(4, statements, "Lock, one release per product and delete regardless of the number of reservations");
+        assertOnHand(first, 100);
+        assertOnHand(second, 100);
+        ids.forEach(id -> assertFalse(reservationsRepository.existsById(id)));
+        assertEquals(0, reservationService.expire(LATER));
+    }
+
+    @Test
+    public void anotherNodeSweepsTheReservationsOfANodeThatStopped() throws Exception {
+        UUID productId = product(10);
+        UUID id = reservation(productId, 4);
+        // Started before the reservation was made, so its wheel does not know of it
+        ReservationService otherNode = new ReservationServiceImpl(reservationsRepository, orderItemsRepository,
+                ordersRepository, productService, inventoryService, orderTotalService, transactionManager,
+                new SimpleMeterRegistry(), Duration.ofMinutes(10), Duration.ofMillis(100), 512, 500, Duration.ofMinutes(1));
+
+        assertEquals(0, otherNode.expire(LATER));
+        assertEquals(0, otherNode.sweep(System.currentTimeMillis()));
+        assertOnHand(productId, 6);
+
+        assertTrue(otherNode.sweep(LATER) >= 1);
+        assertFalse(reservationsRepository.existsById(id));
+        assertOnHand(productId, 10);
+    }
+
+    @Test
+    public void reservationsAreValidated() throws Exception {
+        reserve(seededProductId(1), 0).andExpect(status().isBadRequest());
+        reserve(UUID.randomUUID(), 1).andExpect(status().isNotFound());
+        mvc.perform(get("/reservations/" + UUID.randomUUID())).andExpect(status().isNotFound());
+
+        String id = JsonPath.read(reserve(product(1), 1).andReturn().getResponse().getContentAsString(), "$.id");
+        mvc.perform(post("/reservations/" + id + "/confirm").param("orderId", UUID.randomUUID().toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    private ResultActions reserve(UUID productId, int quantity) throws Exception {
+        return mvc.perform(post("/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(new ReservationRequest(productId.toString(), quantity))));
+    }
+
+    private UUID reservation(UUID productId, int quantity) throws Exception {
+        String response = reserve(productId, quantity).andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return UUID.fromString(JsonPath.read(response, "$.id"));
+    }
+
+    private void assertOnHand(UUID productId, int onHand) throws Exception {
+        mvc.perform(get("/products/" + productId)).andExpect(jsonPath("$.onHand", Matchers.is(onHand)));
+    }
+
+    private UUID product(int onHand) {
+        return productsRepository.save(new ProductDAO(null, "Reserved", "Reserved product",
+                BigInteger.valueOf(onHand), BigDecimal.TEN, true)).getId();
+    }
+
+    private String order() {
+        return ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+    }
+}
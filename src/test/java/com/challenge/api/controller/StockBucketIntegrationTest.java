@@ -0,0 +1,276 @@
+package com.challenge.api.controller;
+
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dao.ProductStockBucketDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.repositories.ProductStockBucketsRepository;
+import com.challenge.api.services.CrudService;
+import com.challenge.api.services.InventoryService;
+import com.challenge.api.services.ProductInvalidationBus;
+import com.challenge.api.services.StockBucketService;
+import com.challenge.api.services.impl.DatabaseInventoryService;
+import com.challenge.api.services.impl.StockBucketServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hamcrest.Matchers;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StockBucketIntegrationTest extends IntegrationTestsBase {
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 15;
+    private static final int STOCK = 100;
+
+    @Autowired
+    @Qualifier("orderItemsService")
+    private CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+
+    @Autowired
+    @Qualifier("stockBucketService")
+    private StockBucketService stockBucketService;
+
+    @Autowired
+    @Qualifier("inventoryService")
+    private InventoryService inventoryService;
+
+    @Autowired
+    @Qualifier("productInvalidationBus")
+    private ProductInvalidationBus productInvalidationBus;
+
+    @Autowired
+    private ProductStockBucketsRepository bucketsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void splitStockIsSpreadOverBucketsAndReadAsOneTotal() throws Exception {
+        UUID productId = product(10);
+
+        split(productId, 4);
+
+        assertEquals(List.of(3, 3, 2, 2), bucketOnHand(productId));
+        assertEquals(BigInteger.ZERO, productsRepository.findById(productId).orElseThrow().getOnHand());
+        mvc.perform(get("/products/" + productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.onHand", Matchers.is(10)));
+    }
+
+    @Test
+    public void reservationsLargerThanAnyBucketAreServedByRebalancing() throws Exception {
+        UUID productId = product(10);
+        split(productId, 4);
+
+        String itemId = orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 7)).getId();
+
+        assertEquals(3, bucketOnHand(productId).stream().mapToInt(Integer::intValue).sum());
+        assertThrows(OutOfStockException.class,
+                () -> orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 4)));
+
+        orderItemsService.delete(itemId);
+        mvc.perform(get("/products/" + productId))
+                .andExpect(jsonPath("$.onHand", Matchers.is(10)));
+    }
+
+    @Test
+    public void rebalancingEvensOutBucketsAndCollectsUnitsReleasedToTheRow() throws Exception {
+        UUID productId = product(8);
+        split(productId, 2);
+        for (int i = 0; i < 3; i++) {
+            orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 1));
+        }
+        // Released by a node that does not know the product is split yet
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                productsRepository.releaseStock(productId, BigInteger.TWO));
+
+        assertTrue(stockBucketService.rebalance() >= 1);
+
+        assertEquals(List.of(4, 3), bucketOnHand(productId));
+        ProductDAO product = productsRepository.findById(productId).orElseThrow();
+        assertEquals(BigInteger.ZERO, product.getOnHand());
+        assertEquals(BigInteger.ONE, product.getReservedUnits()
+                .add(bucketsRepository.findAll().stream()
+                        .filter(bucket -> bucket.getId().getProductId().equals(productId))
+                        .map(ProductStockBucketDAO::getReservedUnits)
+                        .reduce(BigInteger.ZERO, BigInteger::add)), "Three units held by items, two released");
+    }
+
+    @Test
+    public void mergingAndDeletingGatherTheUnitsBackIntoTheRow() throws Exception {
+        UUID productId = product(12);
+        split(productId, 3);
+        orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 2));
+
+        split(productId, 1);
+
+        assertEquals(List.of(), bucketOnHand(productId));
+        ProductDAO product = productsRepository.findById(productId).orElseThrow();
+        assertEquals(BigInteger.TEN, product.getOnHand());
+        assertEquals(BigInteger.TWO, product.getReservedUnits());
+
+        split(productId, 3);
+        mvc.perform(delete("/products/" + productId)).andExpect(status().isNoContent());
+        assertEquals(List.of(), bucketOnHand(productId));
+    }
+
+    @Test
+    public void concurrentBuyersOfASplitProductNeverOversell() throws Exception {
+        UUID productId = product(STOCK);
+        split(productId, 4);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            String orderId = order();
+            futures.add(executor.submit(() -> {
+                start.await();
+                int sold = 0;
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (buy(orderId, productId)) {
+                        sold++;
+                    }
+                }
+                return sold;
+            }));
+        }
+
+        start.countDown();
+        int sold = 0;
+        for (Future<Integer> future : futures) {
+            sold += future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(STOCK, sold, "Exactly the units in stock are sold");
+        assertEquals(BigInteger.ZERO, productsRepository.findById(productId).orElseThrow().getOnHand());
+        assertEquals(0, bucketOnHand(productId).stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void rejectingAProductThatIsNotSplitLooksForItsBucketsOnce() {
+        UUID productId = product(2);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        Boolean reserved = transaction.execute(status -> inventoryService.reserve(productId, BigInteger.valueOf(3)));
+        long reserveStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        Optional<UUID> rejected = transaction.execute(status -> inventoryService.reserveAll(Map.of(productId, BigInteger.valueOf(3))));
+        long reserveAllStatements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(false, reserved);
+        assertEquals(Optional.of(productId), rejected);
+        // The guarded update or the locking select, then one look for buckets another node may have made
+        assertEquals(2, reserveStatements);
+        assertEquals(2, reserveAllStatements);
+    }
+
+    @Test
+    public void anotherNodeReservesAndReleasesProductsSplitAndMergedElsewhere() throws Exception {
+        UUID productId = product(10);
+        UUID otherProductId = product(10);
+        split(productId, 4);
+        StockBucketService otherBuckets = new StockBucketServiceImpl(bucketsRepository, productsRepository,
+                transactionManager, new SimpleMeterRegistry(), "database", "random");
+        InventoryService otherNode = new DatabaseInventoryService(productsRepository, productInvalidationBus, otherBuckets);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        assertEquals(true, transaction.execute(status -> otherNode.reserve(productId, BigInteger.valueOf(3))));
+        assertTrue(otherBuckets.isSplit(productId));
+        assertEquals(Optional.empty(), transaction.execute(status ->
+                otherNode.reserveAll(Map.of(productId, BigInteger.valueOf(4), otherProductId, BigInteger.ONE))));
+        assertEquals(3, bucketOnHand(productId).stream().mapToInt(Integer::intValue).sum());
+
+        split(productId, 1);
+        assertEquals(true, transaction.execute(status -> otherNode.reserve(productId, BigInteger.TWO)));
+        assertEquals(Optional.empty(), transaction.execute(status -> otherNode.reserveAll(Map.of(productId, BigInteger.ONE))));
+        transaction.executeWithoutResult(status -> otherNode.release(productId, BigInteger.valueOf(3)));
+
+        assertEquals(List.of(), bucketOnHand(productId));
+        assertEquals(BigInteger.valueOf(3), productsRepository.findById(productId).orElseThrow().getOnHand());
+        assertEquals(BigInteger.valueOf(9), productsRepository.findById(otherProductId).orElseThrow().getOnHand());
+    }
+
+    @Test
+    public void splitRejectsInvalidCountsAndUnknownProducts() throws Exception {
+        UUID productId = product(10);
+
+        mvc.perform(put("/admin/products/" + productId + "/stock-buckets").param("count", "0"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(put("/admin/products/" + productId + "/stock-buckets").param("count", "65"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(put("/admin/products/" + UUID.randomUUID() + "/stock-buckets").param("count", "4"))
+                .andExpect(status().isNotFound());
+    }
+
+    // H2 waits on the buckets other reservations hold, so deadlock victims are rolled back and tried again
+    private boolean buy(String orderId, UUID productId) throws Exception {
+        while (true) {
+            try {
+                orderItemsService.create(new OrderItemRequest(orderId, productId.toString(), 1));
+                return true;
+            } catch (OutOfStockException e) {
+                return false;
+            } catch (PessimisticLockingFailureException e) {
+                // Rolled back as a deadlock victim
+            }
+        }
+    }
+
+    private void split(UUID productId, int count) throws Exception {
+        mvc.perform(put("/admin/products/" + productId + "/stock-buckets").param("count", String.valueOf(count)))
+                .andExpect(status().isNoContent());
+    }
+
+    private List<Integer> bucketOnHand(UUID productId) {
+        return bucketsRepository.findAll().stream()
+                .filter(bucket -> bucket.getId().getProductId().equals(productId))
+                .sorted((a, b) -> Integer.compare(a.getId().getBucket(), b.getId().getBucket()))
+                .map(bucket -> bucket.getOnHand().intValue())
+                .toList();
+    }
+
+    private UUID product(int onHand) {
+        return productsRepository.save(new ProductDAO(null, "Bucketed", "Bucketed product",
+                BigInteger.valueOf(onHand), BigDecimal.TEN, true)).getId();
+    }
+
+    private String order() {
+        return ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.challenge.api.services;
+
+import com.challenge.api.config.BoundedTaskExecutor;
+import com.challenge.api.config.BoundedTaskExecutor.RejectionPolicy;
+import com.challenge.api.config.BoundedTaskExecutor.Threads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedTaskExecutorUnitTests {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedTaskExecutor executor;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void shutdown() throws Exception {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void fullQueueRunsTasksOnTheCaller() throws Exception {
+        executor = executor(Threads.PLATFORM, RejectionPolicy.CALLER_RUNS);
+        fillPoolAndQueue();
+
+        CompletableFuture<Thread> ranOn = new CompletableFuture<>();
+        executor.execute(() -> ranOn.complete(Thread.currentThread()));
+
+        assertEquals(Thread.currentThread(), ranOn.get(0, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("executor.tasks.rejected").tag("policy", "caller_runs").counter().count());
+        assertEquals(1, meterRegistry.get("executor.queued").tag("name", "test").gauge().value());
+    }
+
+    @Test
+    public void fullQueueRejectsTasksWithAbortPolicy() throws Exception {
+        executor = executor(Threads.PLATFORM, RejectionPolicy.ABORT);
+        fillPoolAndQueue();
+
+        assertThrows(TaskRejectedException.class, () -> executor.execute(() -> {
+        }));
+        assertEquals(1, meterRegistry.get("executor.tasks.rejected").tag("policy", "abort").counter().count());
+    }
+
+    @Test
+    public void failuresAreCountedAndDoNotStopTheExecutor() throws Exception {
+        executor = executor(Threads.PLATFORM, RejectionPolicy.CALLER_RUNS);
+
+        executor.execute(() -> {
+            throw new IllegalStateException("Failed on purpose");
+        });
+        CompletableFuture<Boolean> next = new CompletableFuture<>();
+        executor.execute(() -> next.complete(true));
+
+        assertTrue(next.get(5, TimeUnit.SECONDS));
+        // Waits for the timer, stopped once the task returns
+        executor.shutdown();
+        assertEquals(1, meterRegistry.get("executor.tasks.failed").tag("name", "test").counter().count());
+        assertEquals(2, meterRegistry.get("executor").tag("name", "test").timer().count());
+    }
+
+    @Test
+    public void virtualThreadsCanBeSelected() throws Exception {
+        executor = executor(Threads.VIRTUAL, RejectionPolicy.CALLER_RUNS);
+
+        CompletableFuture<Thread> ranOn = new CompletableFuture<>();
+        executor.execute(() -> ranOn.complete(Thread.currentThread()));
+
+        assertTrue(ranOn.get(5, TimeUnit.SECONDS).isVirtual());
+        assertFalse(ranOn.get().getName().isEmpty());
+    }
+
+    private BoundedTaskExecutor executor(Threads threads, RejectionPolicy rejectionPolicy) {
+        return new BoundedTaskExecutor("test", threads, 1, 1, rejectionPolicy, meterRegistry);
+    }
+
+    // Keeps the only worker busy and the only queue slot taken until the test ends
+    private void fillPoolAndQueue() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> await(release));
+        assertEquals(1, meterRegistry.get("executor.active").tag("name", "test").gauge().value());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.challenge.api.services;
+
+import com.challenge.api.model.dto.Contention;
+import com.challenge.api.services.impl.ConflictRetryServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConflictRetryServiceUnitTests {
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void conflictsAreRetriedUntilTheActionSucceeds() throws Exception {
+        ConflictRetryService service = service(5, 0.2, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        String result = service.execute("products", "p1", conflictingTimes(3, runs));
+
+        assertEquals("done", result);
+        assertEquals(4, runs.get());
+        assertEquals(3, count("optimistic.conflicts"));
+        assertEquals(3, count("optimistic.retries"));
+    }
+
+    @Test
+    public void conflictsAreLetThroughOnceTheAttemptsAreUsed() {
+        ConflictRetryService service = service(3, 0.2, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> service.execute("products", "p1", conflictingTimes(10, runs)));
+
+        assertEquals(3, runs.get());
+        assertEquals(1, meterRegistry.counter("optimistic.retries.exhausted", "scope", "products", "reason", "attempts").count());
+    }
+
+    @Test
+    public void retriesStopOnceTheBudgetIsSpent() throws Exception {
+        // 2 retries in reserve, each call earning half a retry
+        ConflictRetryService service = service(10, 0.5, 2);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> service.execute("orders", "o1", conflictingTimes(10, runs)));
+        assertEquals(3, runs.get());
+        assertEquals(1, meterRegistry.counter("optimistic.retries.exhausted", "scope", "orders", "reason", "budget").count());
+
+        // Two successful calls earn the next retry back
+        service.execute("orders", "o2", () -> "done");
+        service.execute("orders", "o2", () -> "done");
+        runs.set(0);
+        assertEquals("done", service.execute("orders", "o1", conflictingTimes(1, runs)));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void actionsInsideATransactionRunOnce() {
+        ConflictRetryService service = service(5, 0.2, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(ObjectOptimisticLockingFailureException.class,
+                    () -> service.execute("products", "p1", conflictingTimes(1, runs)));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mostContendedRowsComeFirst() throws Exception {
+        ConflictRetryService service = service(5, 0.2, 100);
+        service.execute("products", "p1", conflictingTimes(1, new AtomicInteger()));
+        service.execute("products", "p2", conflictingTimes(3, new AtomicInteger()));
+        service.execute("orders", "o1", conflictingTimes(4, new AtomicInteger()));
+
+        assertEquals(List.of(new Contention("products", "p2", 3), new Contention("products", "p1", 1)),
+                service.mostContended("products", 10));
+        assertEquals(List.of(new Contention("products", "p2", 3)), service.mostContended("products", 1));
+        assertThrows(IllegalArgumentException.class, () -> service.mostContended("products", 0));
+    }
+
+    private ConflictRetryService service(int maxAttempts, double budgetRatio, int budgetReserve) {
+        return new ConflictRetryServiceImpl(meterRegistry, maxAttempts, Duration.ZERO, Duration.ofMillis(1),
+                budgetRatio, budgetReserve, 100);
+    }
+
+    private static Callable<String> conflictingTimes(int conflicts, AtomicInteger runs) {
+        return () -> {
+            if (runs.incrementAndGet() <= conflicts) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, "row");
+            }
+            return "done";
+        };
+    }
+
+    private double count(String name) {
+        return meterRegistry.counter(name, "scope", "products").count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// H2 only streams a result set instead of materializing it when asked to, like a cursor on Postgres does.
+// The context is closed afterwards so the generated rows do not stay in memory for the other tests, and it
+// runs without the second-level cache because closing it would close the JCache manager shared with them.
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export;LAZY_QUERY_EXECUTION=TRUE",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"})
+@DirtiesContext
+@Tag("benchmark")
+public class ExportHeapBenchmarkTest extends IntegrationTestsBase {
+    private static final int ORDERS = 200_000;
+    private static final int ITEMS_PER_ORDER = 5;
+    private static final long HEAP_BUDGET = 16L * 1024 * 1024;
+    private static final long SAMPLE_EVERY = 16L * 1024 * 1024;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @Autowired
+    @Qualifier("exportService")
+    private ExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void millionRowExportRunsInConstantHeap() throws Exception {
+        jdbcTemplate.update("INSERT INTO orders (order_id, customer_name, order_date, total, active) " +
+                "SELECT CAST('ffffffff-ffff-7fff-8fff-' || LPAD(X, 12, '0') AS UUID), 'Customer ' || X, " +
+                "CURRENT_TIMESTAMP, 50.00, true FROM SYSTEM_RANGE(1, ?)", ORDERS);
+        jdbcTemplate.update("INSERT INTO order_items (order_item_id, order_id, product_id, quantity, unit_price, active) " +
+                "SELECT CAST('fffffffe-ffff-7fff-8fff-' || LPAD(X, 12, '0') AS UUID), " +
+                "CAST('ffffffff-ffff-7fff-8fff-' || LPAD((X - 1) / ? + 1, 12, '0') AS UUID), ?, 1, 10.00, true " +
+                "FROM SYSTEM_RANGE(1, ?)", ITEMS_PER_ORDER, seededProductId(1), ORDERS * ITEMS_PER_ORDER);
+
+        HeapSamplingOutputStream output = new HeapSamplingOutputStream();
+        long start = System.nanoTime();
+        exportService.exportOrders(ExportFormat.CSV, output);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long rows = output.lines - 1;
+        System.out.printf("exported %d rows, %d MB in %.1f s (%.0f rows/s), peak heap growth %d MB%n",
+                rows, output.bytes >> 20, seconds, rows / seconds, output.peakGrowth >> 20);
+        assertEquals((long) ORDERS * ITEMS_PER_ORDER, rows);
+        assertTrue(output.bytes > 4 * HEAP_BUDGET, "The export is larger than the heap it may use");
+        assertTrue(output.peakGrowth < HEAP_BUDGET, "Heap grew by " + output.peakGrowth + " bytes during the export");
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    // Discards the export, counting it and sampling the live heap every few megabytes
+    private static final class HeapSamplingOutputStream extends OutputStream {
+        private final long baseline = usedHeapAfterGc();
+        private long bytes;
+        private long lines;
+        private long peakGrowth;
+        private long nextSample = SAMPLE_EVERY;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+
+            bytes += length;
+            if (bytes >= nextSample) {
+                nextSample += SAMPLE_EVERY;
+                peakGrowth = Math.max(peakGrowth, usedHeapAfterGc() - baseline);
+            }
+        }
+    }
+}
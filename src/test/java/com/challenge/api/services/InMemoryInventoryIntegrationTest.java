@@ -0,0 +1,234 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.services.impl.InMemoryInventoryService;
+import com.challenge.api.services.impl.InProcessProductInvalidationBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// The engine owns the products of its own database, flushed only when the tests ask for it. Runs without the
+// second-level cache, whose regions would otherwise be shared with the contexts of the default database.
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inventory",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "inventory.engine=memory",
+        "inventory.flush-interval=1h",
+        "inventory.flush-batch-size=1000000"})
+public class InMemoryInventoryIntegrationTest extends IntegrationTestsBase {
+    private static final int BUYERS = 500;
+    private static final int STOCK = 100;
+
+    @Autowired
+    @Qualifier("inventoryService")
+    private InMemoryInventoryService inventoryService;
+
+    @Autowired
+    @Qualifier("orderItemsService")
+    private CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+
+    @Autowired
+    @Qualifier("productsService")
+    private CrudService<Product, Product, String> productService;
+
+    @Autowired
+    @Qualifier("stockBucketService")
+    private StockBucketService stockBucketService;
+
+    @Autowired
+    @Qualifier("orderBatchService")
+    private OrderBatchService orderBatchService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Leaves on_hand and reserved_units in line with the order items for the next test
+    @AfterEach
+    public void flush() {
+        inventoryService.flush();
+    }
+
+    @Test
+    public void concurrentBuyersNeverOversellAndStockIsWrittenBehind() throws Exception {
+        UUID productId = product(STOCK);
+        String orderId = order();
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < BUYERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderItemsService.create(new OrderItemRequest(orderId, productId.toString(), 1));
+                    sold.incrementAndGet();
+                } catch (OutOfStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                fail("Unexpected failure while buying the product", e);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(STOCK, sold.get(), "Every unit in stock is sold");
+        assertEquals(BUYERS - STOCK, rejected.get(), "Remaining buyers are rejected as out of stock");
+        assertEquals(BigInteger.valueOf(STOCK), product(productId).getOnHand(), "Nothing is written until a flush");
+
+        assertEquals(1, inventoryService.flush(), "All the reservations are written with one update");
+        assertEquals(BigInteger.ZERO, product(productId).getOnHand());
+        assertEquals(BigInteger.valueOf(STOCK), product(productId).getReservedUnits());
+        assertEquals(0, inventoryService.flush(), "Nothing changed since the last flush");
+    }
+
+    @Test
+    public void rolledBackReservationsAndCommittedReleasesReturnTheirUnits() throws Exception {
+        UUID productId = product(10);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            assertTrue(inventoryService.reserve(productId, BigInteger.TEN));
+            status.setRollbackOnly();
+        });
+        String itemId = orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 10)).getId();
+        assertThrows(OutOfStockException.class,
+                () -> orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 1)));
+
+        orderItemsService.delete(itemId);
+        orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 4));
+
+        inventoryService.flush();
+        assertEquals(BigInteger.valueOf(6), product(productId).getOnHand());
+        assertEquals(BigInteger.valueOf(4), product(productId).getReservedUnits());
+    }
+
+    @Test
+    public void restockedProductsKeepTheirReservationsAndDeletedOnesCannotBeReserved() throws Exception {
+        UUID productId = product(10);
+        orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 3));
+
+        productService.update(productId.toString(), new Product(productId.toString(), "Restocked", "Restocked product",
+                50, BigDecimal.TEN));
+        orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 5));
+
+        inventoryService.flush();
+        assertEquals(BigInteger.valueOf(45), product(productId).getOnHand());
+        assertEquals(BigInteger.valueOf(8), product(productId).getReservedUnits());
+
+        productService.delete(productId.toString());
+        assertFalse(inventoryService.reserve(productId, BigInteger.ONE));
+    }
+
+    @Test
+    public void batchesSeeUnitsReleasedSinceTheLastFlush() throws Exception {
+        UUID productId = product(10);
+        String itemId = orderItemsService.create(new OrderItemRequest(order(), productId.toString(), 10)).getId();
+        inventoryService.flush();
+        orderItemsService.delete(itemId);
+        assertEquals(BigInteger.ZERO, product(productId).getOnHand(), "The release is not written yet");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        String line = "{\"customerName\": \"Customer 1\", \"items\": [{\"productId\": \"" + productId + "\", \"quantity\": 4}]}";
+        orderBatchService.ingest(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)), output);
+
+        assertFalse(output.toString(StandardCharsets.UTF_8).contains("\"status\""), output.toString(StandardCharsets.UTF_8));
+        inventoryService.flush();
+        assertEquals(BigInteger.valueOf(6), product(productId).getOnHand());
+    }
+
+    @Test
+    public void onHandIsRebuiltFromOrderItemsAfterACrash() {
+        UUID productId = product(100);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        InMemoryInventoryService crashed = node();
+
+        for (int quantity : new int[]{5, 7, 11}) {
+            transaction.executeWithoutResult(status -> {
+                assertTrue(crashed.reserve(productId, BigInteger.valueOf(quantity)));
+                item(productId, quantity);
+            });
+            if (quantity == 5) {
+                crashed.flush();
+            }
+        }
+        // Written before the crash, the other two reservations only live in the crashed node
+        assertEquals(BigInteger.valueOf(95), product(productId).getOnHand());
+
+        InMemoryInventoryService restarted = node();
+        assertEquals(BigInteger.valueOf(77), product(productId).getOnHand());
+        assertEquals(BigInteger.valueOf(23), product(productId).getReservedUnits());
+        assertTrue(restarted.reserve(productId, BigInteger.valueOf(77)));
+        assertFalse(restarted.reserve(productId, BigInteger.ONE));
+    }
+
+    private InMemoryInventoryService node() {
+        InMemoryInventoryService node = new InMemoryInventoryService(productsRepository,
+                new InProcessProductInvalidationBus(), stockBucketService, Runnable::run, transactionManager, new SimpleMeterRegistry(), 1000);
+        node.recover();
+        return node;
+    }
+
+    private UUID product(int onHand) {
+        return productsRepository.save(new ProductDAO(null, "Inventory", "Inventory product",
+                BigInteger.valueOf(onHand), BigDecimal.TEN, true)).getId();
+    }
+
+    private ProductDAO product(UUID productId) {
+        return productsRepository.findById(productId).orElseThrow();
+    }
+
+    private String order() {
+        return ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+    }
+
+    private void item(UUID productId, int quantity) {
+        orderItemsRepository.save(new OrderItemDAO(null, BigInteger.valueOf(quantity), BigDecimal.TEN, true,
+                new ProductDAO(productId), new OrderDAO(UUID.fromString(order()))));
+    }
+}
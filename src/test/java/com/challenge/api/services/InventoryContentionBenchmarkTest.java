@@ -0,0 +1,104 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.services.impl.DatabaseInventoryService;
+import com.challenge.api.services.impl.InMemoryInventoryService;
+import com.challenge.api.services.impl.InProcessProductInvalidationBus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Same properties as InMemoryInventoryIntegrationTest, so both run in one context
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inventory",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "inventory.engine=memory",
+        "inventory.flush-interval=1h",
+        "inventory.flush-batch-size=1000000"})
+@Tag("benchmark")
+public class InventoryContentionBenchmarkTest extends IntegrationTestsBase {
+    private static final int THREADS = 16;
+    private static final int RESERVATIONS_PER_THREAD = 250;
+    private static final int RESERVATIONS = THREADS * RESERVATIONS_PER_THREAD;
+
+    @Autowired
+    @Qualifier("inventoryService")
+    private InMemoryInventoryService memoryInventory;
+
+    @Autowired
+    @Qualifier("stockBucketService")
+    private StockBucketService stockBucketService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void reservationsOfOneProductContendLessInMemory() throws Exception {
+        InventoryService databaseInventory = new DatabaseInventoryService(productsRepository,
+                new InProcessProductInvalidationBus(), stockBucketService);
+        UUID databaseProduct = product();
+        UUID memoryProduct = product();
+
+        System.out.printf("%-10s %12s %16s%n", "engine", "reservations", "reservations/s");
+        measure("database", databaseInventory, databaseProduct);
+        measure("memory", memoryInventory, memoryProduct);
+        memoryInventory.flush();
+
+        assertEquals(BigInteger.ZERO, productsRepository.findById(databaseProduct).orElseThrow().getOnHand());
+        assertEquals(BigInteger.ZERO, productsRepository.findById(memoryProduct).orElseThrow().getOnHand());
+    }
+
+    // Every thread reserves one unit per transaction, the way each POST /order-items does
+    private void measure(String engine, InventoryService inventory, UUID productId) throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int reserved = 0;
+                for (int i = 0; i < RESERVATIONS_PER_THREAD; i++) {
+                    if (transaction.execute(status -> inventory.reserve(productId, BigInteger.ONE))) {
+                        reserved++;
+                    }
+                }
+                return reserved;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int reserved = 0;
+        for (Future<Integer> future : futures) {
+            reserved += future.get();
+        }
+        double perSecond = RESERVATIONS / ((System.nanoTime() - begin) / 1_000_000_000.0);
+        executor.shutdown();
+
+        System.out.printf("%-10s %12d %16.0f%n", engine, reserved, perSecond);
+        assertEquals(RESERVATIONS, reserved, "Every reservation fits the stock");
+    }
+
+    private UUID product() {
+        return productsRepository.save(new ProductDAO(null, "Contended", "Contended product",
+                BigInteger.valueOf(RESERVATIONS), BigDecimal.TEN, true)).getId();
+    }
+}
@@ -0,0 +1,86 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.utils.UuidUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("benchmark")
+public class KeyLayoutBenchmarkTest extends IntegrationTestsBase {
+    private static final int ORDERS = 20_000;
+    private static final int ITEMS_PER_ORDER = 5;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int RUNS = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        dropTables();
+    }
+
+    @Test
+    public void timeOrderedUuidKeysAreInsertedInKeyOrder() {
+        System.out.printf("%-16s %12s %14s%n", "layout", "rows", "rows/s");
+        long varcharRows = measure("varchar(255) v4", "VARCHAR(255)", () -> UUID.randomUUID().toString());
+        long uuidRows = measure("uuid v7", "UUID", UuidUtils::randomV7);
+        assertEquals(varcharRows, uuidRows);
+    }
+
+    private long measure(String layout, String keyType, Supplier<Object> keys) {
+        long bestNanos = Long.MAX_VALUE;
+        long rows = 0;
+        for (int run = 0; run < RUNS; run++) {
+            dropTables();
+            jdbcTemplate.execute("CREATE TABLE bench_orders (id " + keyType + " PRIMARY KEY, customer_name VARCHAR(100) NOT NULL)");
+            jdbcTemplate.execute("CREATE TABLE bench_items (id " + keyType + " PRIMARY KEY, order_id " + keyType +
+                    " NOT NULL REFERENCES bench_orders (id), quantity INT NOT NULL)");
+
+            long start = System.nanoTime();
+            List<Object[]> orders = new ArrayList<>();
+            List<Object[]> items = new ArrayList<>();
+            for (int order = 0; order < ORDERS; order++) {
+                Object orderId = keys.get();
+                orders.add(new Object[]{orderId, "Customer " + order});
+                for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+                    items.add(new Object[]{keys.get(), orderId, item + 1});
+                }
+
+                if (orders.size() == BATCH_SIZE) {
+                    insert(orders, items);
+                }
+            }
+            insert(orders, items);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+
+            rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bench_orders", Long.class)
+                    + jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bench_items", Long.class);
+        }
+
+        System.out.printf("%-16s %12d %14.0f%n", layout, rows, rows / (bestNanos / 1_000_000_000.0));
+        return rows;
+    }
+
+    private void insert(List<Object[]> orders, List<Object[]> items) {
+        jdbcTemplate.batchUpdate("INSERT INTO bench_orders (id, customer_name) VALUES (?, ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO bench_items (id, order_id, quantity) VALUES (?, ?, ?)", items);
+        orders.clear();
+        items.clear();
+    }
+
+    private void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_items");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_orders");
+    }
+}
@@ -0,0 +1,75 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+public class OrderCreationBenchmarkTest extends IntegrationTestsBase {
+    private static final int[] LINES = {1, 10, 100, 1000};
+    private static final int PRODUCTS = 10;
+    private static final int RUNS = 3;
+
+    @Autowired
+    @Qualifier("ordersService")
+    private CrudService<OrderRequest, OrderResponse, String> ordersService;
+
+    @Test
+    public void orderCreationStatementsGrowPerProductNotPerLine() throws Exception {
+        List<String> productIds = productsRepository.saveAll(IntStream.range(0, PRODUCTS)
+                        .mapToObj(i -> new ProductDAO(null, "Bench " + i, "Benchmark product " + i,
+                                BigInteger.valueOf(1_000_000), BigDecimal.ONE, true))
+                        .toList())
+                .stream()
+                .map(product -> product.getId().toString())
+                .toList();
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+
+        System.out.printf("%8s %12s %12s%n", "lines", "statements", "latency(ms)");
+        for (int lines : LINES) {
+            OrderRequest request = new OrderRequest();
+            request.setCustomerName("Benchmark");
+            request.setItems(IntStream.range(0, lines)
+                    .mapToObj(line -> new OrderItemRequest(null, productIds.get(line % PRODUCTS), 1))
+                    .toList());
+
+            long statements = Long.MAX_VALUE;
+            long bestNanos = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                statistics.clear();
+                long start = System.nanoTime();
+                OrderResponse response = ordersService.create(request);
+                bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+                statements = Math.min(statements, statistics.getPrepareStatementCount());
+
+                assertEquals(lines, response.getItems().size());
+                assertEquals(BigDecimal.valueOf(lines).setScale(2), response.getTotal());
+            }
+
+            System.out.printf("%8d %12d %12.2f%n", lines, statements, bestNanos / 1_000_000.0);
+            // One insert for the order, one product lookup, one guarded reservation per distinct product
+            // and the item inserts shared in JDBC batches
+            assertTrue(statements <= 2 + Math.min(lines, PRODUCTS) + Math.ceilDiv(lines, 50) + 1,
+                    "Order with " + lines + " lines used " + statements + " statements");
+        }
+
+        statistics.setStatisticsEnabled(false);
+    }
+}
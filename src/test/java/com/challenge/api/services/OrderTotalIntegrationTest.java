@@ -0,0 +1,66 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderTotalIntegrationTest extends IntegrationTestsBase {
+
+    @Autowired
+    @Qualifier("orderTotalService")
+    private OrderTotalService orderTotalService;
+
+    @ParameterizedTest(name = "Recalculate total of an order with {0} items")
+    @ValueSource(ints = {1, 10, 100})
+    public void totalIsRecalculatedWithAConstantNumberOfStatements(int numberOfItems) {
+        OrderDAO order = new OrderDAO(null, "Customer 1", LocalDateTime.now(), BigDecimal.ZERO, true, new ArrayList<>());
+        IntStream.range(0, numberOfItems)
+                .forEach(i -> order.getItems().add(new OrderItemDAO(null, BigInteger.TWO, BigDecimal.valueOf(10.00),
+                        true, new ProductDAO(seededProductId(1)), order)));
+        // Inactive items are not part of the total
+        order.getItems().add(new OrderItemDAO(null, BigInteger.TEN, BigDecimal.valueOf(10.00), false, new ProductDAO(seededProductId(1)), order));
+        UUID orderId = ordersRepository.save(order).getId();
+        // Leave only this order's entries in the outbox
+        drainAll();
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        orderTotalService.recalculateTotal(orderId);
+        orderTotalService.recalculateTotal(orderId);
+        long recordStatements = statistics.getPrepareStatementCount();
+        int drained = orderTotalService.drainOutbox();
+        long drainStatements = statistics.getPrepareStatementCount() - recordStatements;
+        long entitiesLoaded = statistics.getEntityLoadCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(2, drained);
+        assertEquals(0, BigDecimal.valueOf(20L * numberOfItems).compareTo(ordersRepository.findById(orderId).orElseThrow().getTotal()));
+        assertEquals(2, recordStatements, "One insert per recorded recalculation");
+        assertEquals(3, drainStatements, "Select, recalculate and delete regardless of the number of items and records");
+        assertEquals(2, entitiesLoaded, "Only the outbox entries are loaded");
+    }
+
+    private void drainAll() {
+        int drained;
+        do {
+            drained = orderTotalService.drainOutbox();
+        } while (drained > 0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.repositories.OrderTotalOutboxRepository;
+import com.challenge.api.services.impl.OrderTotalServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderTotalOutboxIntegrationTest extends IntegrationTestsBase {
+
+    @Autowired
+    @Qualifier("orderTotalService")
+    private OrderTotalService orderTotalService;
+
+    @Autowired
+    @Qualifier("orderItemsService")
+    private CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+
+    @Autowired
+    @Qualifier("orderTotalOutboxRepository")
+    private OrderTotalOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    public void setup() {
+        transaction = new TransactionTemplate(transactionManager);
+        drainAll(orderTotalService);
+    }
+
+    @Test
+    public void recordedRecalculationsSurviveARestart() throws Exception {
+        UUID orderId = order();
+        OrderItemResponse item = orderItemsService.create(new OrderItemRequest(orderId.toString(), seededProductId(1).toString(), 2));
+        orderItemsService.update(item.getId(), new OrderItemRequest(orderId.toString(), seededProductId(2).toString(), 1));
+        orderItemsService.create(new OrderItemRequest(orderId.toString(), seededProductId(1).toString(), 1));
+        BigDecimal expected = total(orderId);
+        assertEquals(3, pending(orderId));
+
+        // A delta lost to a concurrent change leaves the total wrong until the outbox is drained
+        jdbcTemplate.update("UPDATE orders SET total = 0 WHERE order_id = ?", orderId);
+
+        // A new instance has nothing in memory, everything it needs is in the outbox
+        OrderTotalService restarted = new OrderTotalServiceImpl(ordersRepository, outboxRepository, transactionManager,
+                new SimpleMeterRegistry(), 500);
+        assertEquals(3, drainAll(restarted));
+
+        assertEquals(0, pending(orderId));
+        assertEquals(0, expected.compareTo(total(orderId)));
+    }
+
+    @Test
+    public void rolledBackChangesRecordNothing() {
+        UUID orderId = order();
+
+        transaction.executeWithoutResult(status -> {
+            orderTotalService.recalculateTotal(orderId);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, pending(orderId));
+        assertEquals(0, orderTotalService.drainOutbox());
+    }
+
+    @Test
+    public void concurrentWorkersDrainEachEntryOnce() throws Exception {
+        // Postgres skips the entries locked by the other worker, H2 waits for them to be deleted
+        for (int i = 0; i < 20; i++) {
+            UUID orderId = order();
+            for (int j = 0; j < 10; j++) {
+                orderTotalService.recalculateTotal(orderId);
+            }
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> workers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            OrderTotalService worker = new OrderTotalServiceImpl(ordersRepository, outboxRepository, transactionManager,
+                    new SimpleMeterRegistry(), 10);
+            workers.add(CompletableFuture.supplyAsync(() -> {
+                await(start);
+                return drainAll(worker);
+            }));
+        }
+        start.countDown();
+
+        int drained = 0;
+        for (CompletableFuture<Integer> worker : workers) {
+            drained += worker.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(200, drained);
+        assertEquals(0, outboxRepository.count());
+    }
+
+    private UUID order() {
+        return ordersRepository.save(new OrderDAO(null, "Outbox", LocalDateTime.now(), BigDecimal.ZERO, true, new ArrayList<>())).getId();
+    }
+
+    private BigDecimal total(UUID orderId) {
+        return jdbcTemplate.queryForObject("SELECT total FROM orders WHERE order_id = ?", BigDecimal.class, orderId);
+    }
+
+    private long pending(UUID orderId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_total_outbox WHERE order_id = ?", Long.class, orderId);
+    }
+
+    private static int drainAll(OrderTotalService service) {
+        int total = 0;
+        int drained;
+        do {
+            drained = service.drainOutbox();
+            total += drained;
+        } while (drained > 0);
+        return total;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.challenge.api.services;
+
+import com.challenge.api.services.impl.OrderTotalOutboxPoller;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderTotalOutboxPollerUnitTests {
+    @Mock
+    private OrderTotalService orderTotalService;
+
+    @Test
+    public void pollStopsOnceTheOutboxIsEmpty() {
+        when(orderTotalService.drainOutbox()).thenReturn(500, 20, 0);
+
+        new OrderTotalOutboxPoller(orderTotalService, 10).poll();
+
+        verify(orderTotalService, times(3)).drainOutbox();
+    }
+
+    @Test
+    public void pollLeavesALargerBacklogToTheNextPoll() {
+        when(orderTotalService.drainOutbox()).thenReturn(500);
+
+        new OrderTotalOutboxPoller(orderTotalService, 10).poll();
+
+        verify(orderTotalService, times(10)).drainOutbox();
+    }
+
+    @Test
+    public void pollerRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderTotalOutboxPoller(orderTotalService, 0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderItemResponse;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderTotalPropertyTest extends IntegrationTestsBase {
+    private static final int OPERATIONS = 60;
+
+    @Autowired
+    @Qualifier("orderItemsService")
+    private CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+
+    @ParameterizedTest(name = "Random item changes with seed {0}")
+    @ValueSource(longs = {1, 7, 42, 1234, 98765})
+    public void incrementalTotalsMatchAFullRecompute(long seed) throws Exception {
+        Random random = new Random(seed);
+        List<String> productIds = List.of(product("1.25"), product("10.00"), product("99.99"));
+        List<String> orderIds = List.of(order(), order());
+        List<String> itemIds = new ArrayList<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = itemIds.isEmpty() ? 0 : random.nextInt(3);
+            OrderItemRequest request = new OrderItemRequest(orderIds.get(random.nextInt(orderIds.size())),
+                    productIds.get(random.nextInt(productIds.size())), 1 + random.nextInt(20));
+
+            switch (operation) {
+                case 0 -> itemIds.add(orderItemsService.create(request).getId());
+                case 1 -> orderItemsService.update(itemIds.get(random.nextInt(itemIds.size())), request);
+                default -> orderItemsService.delete(itemIds.remove(random.nextInt(itemIds.size())));
+            }
+        }
+
+        for (String orderId : orderIds) {
+            BigDecimal incremental = ordersRepository.findById(UUID.fromString(orderId)).orElseThrow().getTotal();
+            BigDecimal recomputed = orderItemsRepository.sumActiveTotalByOrderId(UUID.fromString(orderId));
+            assertEquals(0, recomputed.compareTo(incremental),
+                    "Order " + orderId + " total " + incremental + " differs from recomputed " + recomputed);
+        }
+    }
+
+    private String product(String unitPrice) {
+        return productsRepository.save(new ProductDAO(null, "Property", "Property test product",
+                BigInteger.valueOf(1_000_000), new BigDecimal(unitPrice), true)).getId().toString();
+    }
+
+    private String order() {
+        return ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+    }
+}
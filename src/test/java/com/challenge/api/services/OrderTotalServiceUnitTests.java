@@ -0,0 +1,99 @@
+package com.challenge.api.services;
+
+import com.challenge.api.model.dao.OrderTotalOutboxDAO;
+import com.challenge.api.repositories.OrderTotalOutboxRepository;
+import com.challenge.api.repositories.OrdersRepository;
+import com.challenge.api.services.impl.OrderTotalServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderTotalServiceUnitTests {
+    private static final UUID ORDER_ID = UUID.fromString("00000000-0000-7000-8000-000000000001");
+    private static final UUID OTHER_ORDER_ID = UUID.fromString("00000000-0000-7000-8000-000000000002");
+    private static final int BATCH_SIZE = 100;
+
+    @Mock
+    private OrdersRepository orderRepository;
+
+    @Mock
+    private OrderTotalOutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderTotalService orderTotalService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderTotalService = new OrderTotalServiceImpl(orderRepository, outboxRepository, transactionManager, meterRegistry, BATCH_SIZE);
+    }
+
+    @Test
+    public void recalculationIsRecordedInTheOutbox() {
+        orderTotalService.recalculateTotal(ORDER_ID);
+
+        ArgumentCaptor<OrderTotalOutboxDAO> entry = ArgumentCaptor.forClass(OrderTotalOutboxDAO.class);
+        verify(outboxRepository).save(entry.capture());
+        assertNull(entry.getValue().getId());
+        assertEquals(ORDER_ID, entry.getValue().getOrderId());
+        verify(orderRepository, never()).recalculateTotals(anyCollection());
+    }
+
+    @Test
+    public void entriesForTheSameOrderAreCoalesced() {
+        List<OrderTotalOutboxDAO> entries = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            entries.add(entry(ORDER_ID));
+        }
+        entries.add(entry(OTHER_ORDER_ID));
+        when(outboxRepository.findOldest(Limit.of(BATCH_SIZE))).thenReturn(entries);
+        when(orderRepository.recalculateTotals(anyCollection())).thenReturn(2);
+
+        assertEquals(5, orderTotalService.drainOutbox());
+
+        verify(orderRepository).recalculateTotals(Set.of(ORDER_ID, OTHER_ORDER_ID));
+        verify(outboxRepository).deleteAllInBatch(entries);
+        assertEquals(5, meterRegistry.get("orders.total.outbox.drained").counter().count());
+        assertEquals(2, meterRegistry.get("orders.total.outbox.recalculated").counter().count());
+        assertEquals(3, meterRegistry.get("orders.total.outbox.coalesced").counter().count());
+        assertEquals(5, meterRegistry.get("orders.total.outbox.lag").timer().count());
+    }
+
+    @Test
+    public void emptyOutboxRecalculatesNothing() {
+        when(outboxRepository.findOldest(Limit.of(BATCH_SIZE))).thenReturn(List.of());
+
+        assertEquals(0, orderTotalService.drainOutbox());
+
+        verify(orderRepository, never()).recalculateTotals(anyCollection());
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+    }
+
+    private static OrderTotalOutboxDAO entry(UUID orderId) {
+        return new OrderTotalOutboxDAO(UUID.randomUUID(), orderId, LocalDateTime.now().minusSeconds(1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dto.CursorPage;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.utils.CursorUtils;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("benchmark")
+public class PaginationBenchmarkTest extends IntegrationTestsBase {
+    private static final int PAGE_SIZE = 5;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int ROWS = PAGE_SIZE * DEEP_PAGE;
+    private static final int RUNS = 5;
+    // Benchmark ids sort after every generated one
+    private static final String ID_PREFIX = "ffffffff-ffff-7fff-8fff-";
+
+    @Autowired
+    @Qualifier("productsService")
+    private CrudService<Product, Product, String> productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.update("DELETE FROM products WHERE product_id >= ?", UUID.fromString(ID_PREFIX + "000000000000"));
+    }
+
+    @Test
+    public void keysetPaginationCostDoesNotDependOnDepth() {
+        jdbcTemplate.update("INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active) " +
+                "SELECT CAST(? || LPAD(X, 12, '0') AS UUID), 'Paged', 'Paged product', 1, 1.00, true FROM SYSTEM_RANGE(1, ?)",
+                ID_PREFIX, ROWS);
+
+        // Rows before the benchmark ids sort first, so the deep page starts after the benchmark row its cursor names
+        int offsetBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE active = true AND product_id < ?",
+                Integer.class, UUID.fromString(ID_PREFIX + "000000000000"));
+        PageRequest firstPage = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+        PageRequest deepPage = PageRequest.of((offsetBefore + ROWS - PAGE_SIZE) / PAGE_SIZE, PAGE_SIZE, Sort.by("id"));
+        String deepCursor = CursorUtils.encode(ID_PREFIX + String.format("%012d", deepPage.getOffset() - offsetBefore));
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+
+        System.out.printf("%-8s %8s %12s %12s%n", "mode", "page", "statements", "latency(ms)");
+        measure(statistics, "offset", 1, () -> productService.getAll(firstPage));
+        measure(statistics, "offset", DEEP_PAGE, () -> productService.getAll(deepPage));
+        measure(statistics, "keyset", 1, () -> productService.getAll(null, PAGE_SIZE));
+        long keysetStatements = measure(statistics, "keyset", DEEP_PAGE, () -> productService.getAll(deepCursor, PAGE_SIZE));
+
+        statistics.setStatisticsEnabled(false);
+        assertEquals(1, keysetStatements, "Keyset pages never run a count query");
+
+        // Both modes return the same deep page
+        CursorPage<Product> keyset = productService.getAll(deepCursor, PAGE_SIZE);
+        Page<Product> offset = productService.getAll(deepPage);
+        assertEquals(offset.getContent().stream().map(Product::getId).toList(),
+                keyset.content().stream().map(Product::getId).toList());
+    }
+
+    private long measure(Statistics statistics, String mode, int page, Supplier<?> query) {
+        long bestNanos = Long.MAX_VALUE;
+        long statements = 0;
+        for (int run = 0; run < RUNS; run++) {
+            statistics.clear();
+            long start = System.nanoTime();
+            query.get();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            statements = statistics.getPrepareStatementCount();
+        }
+
+        System.out.printf("%-8s %8d %12d %12.2f%n", mode, page, statements, bestNanos / 1_000_000.0);
+        return statements;
+    }
+}
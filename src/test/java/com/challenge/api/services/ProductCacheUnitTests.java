@@ -0,0 +1,157 @@
+package com.challenge.api.services;
+
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.impl.InProcessProductInvalidationBus;
+import com.challenge.api.services.impl.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductCacheUnitTests {
+    private static final String PRODUCT_ID = "00000000-0000-7000-8000-000000000001";
+    private static final UUID PRODUCT_UUID = UUID.fromString(PRODUCT_ID);
+    private static final Product PRODUCT = new Product(PRODUCT_ID, "product_1", "product_description", 20, new BigDecimal("50.5"));
+    private static final ProductDAO PRODUCT_DAO = new ProductDAO(PRODUCT_UUID, "product_1", "product_description",
+            BigInteger.valueOf(20), new BigDecimal("50.5"), true);
+
+    @Mock
+    private ProductsRepository productRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductService productService;
+
+    @BeforeEach
+    public void setup() {
+        productService = node(new InProcessProductInvalidationBus(), 100);
+    }
+
+    @Test
+    public void repeatedReadsAreServedFromTheCache() {
+        when(productRepository.findAsDtoById(PRODUCT_UUID)).thenReturn(Optional.of(PRODUCT));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(PRODUCT, productService.getById(PRODUCT_ID));
+        }
+
+        verify(productRepository, times(1)).findAsDtoById(PRODUCT_UUID);
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void missingProductsAreNotCached() {
+        when(productRepository.findAsDtoById(PRODUCT_UUID)).thenReturn(Optional.empty())
+                .thenReturn(Optional.of(PRODUCT));
+
+        assertThrows(EntityNotFoundException.class, () -> productService.getById(PRODUCT_ID));
+        assertEquals(PRODUCT, productService.getById(PRODUCT_ID));
+    }
+
+    @Test
+    public void updateAndDeleteInvalidateTheCachedProduct() throws Exception {
+        when(productRepository.findAsDtoById(PRODUCT_UUID)).thenReturn(Optional.of(PRODUCT));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(PRODUCT_DAO));
+        when(productRepository.saveAndFlush(any(ProductDAO.class))).thenReturn(PRODUCT_DAO);
+
+        productService.getById(PRODUCT_ID);
+        productService.update(PRODUCT_ID, PRODUCT);
+        productService.getById(PRODUCT_ID);
+        productService.delete(PRODUCT_ID);
+        productService.getById(PRODUCT_ID);
+
+        verify(productRepository, times(3)).findAsDtoById(PRODUCT_UUID);
+    }
+
+    @Test
+    public void invalidationReachesEveryNode() throws Exception {
+        List<Consumer<UUID>> network = new CopyOnWriteArrayList<>();
+        ClusterInvalidationBus firstBus = new ClusterInvalidationBus(network);
+        ProductService first = node(firstBus, 100);
+        ProductService second = node(new ClusterInvalidationBus(network), 100);
+
+        when(productRepository.findAsDtoById(PRODUCT_UUID)).thenReturn(Optional.of(PRODUCT));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(PRODUCT_DAO));
+        when(productRepository.saveAndFlush(any(ProductDAO.class))).thenReturn(PRODUCT_DAO);
+
+        first.getById(PRODUCT_ID);
+        second.getById(PRODUCT_ID);
+        first.update(PRODUCT_ID, PRODUCT);
+        second.getById(PRODUCT_ID);
+
+        assertEquals(List.of(PRODUCT_UUID), firstBus.published);
+        verify(productRepository, times(3)).findAsDtoById(PRODUCT_UUID);
+    }
+
+    @Test
+    public void cacheIsBoundedBySize() throws Exception {
+        ProductService bounded = node(new InProcessProductInvalidationBus(), 2);
+        for (int i = 0; i < 10; i++) {
+            UUID id = new UUID(0, i);
+            when(productRepository.findAsDtoById(id)).thenReturn(Optional.of(new Product(id.toString(), "product", "description", 1, BigDecimal.ONE)));
+            bounded.getById(id.toString());
+        }
+
+        // Evictions run on the cache maintenance thread
+        double evictions = 0;
+        for (int attempt = 0; attempt < 100 && evictions < 8; attempt++) {
+            Thread.sleep(10);
+            evictions = meterRegistry.get("cache.evictions").tag("cache", "products").functionCounter().count();
+        }
+        assertEquals(8, evictions);
+    }
+
+    private ProductService node(ProductInvalidationBus bus, long maximumSize) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new ProductService(productRepository, bus, inventoryService, meterRegistry, maximumSize, Duration.ofMinutes(5));
+    }
+
+    /**
+     * Stands in for a broker shared by several nodes: every message reaches the listeners of all of them.
+     */
+    private static final class ClusterInvalidationBus implements ProductInvalidationBus {
+        private final List<Consumer<UUID>> network;
+        private final List<UUID> published = new ArrayList<>();
+
+        private ClusterInvalidationBus(List<Consumer<UUID>> network) {
+            this.network = network;
+        }
+
+        @Override
+        public void publish(UUID productId) {
+            published.add(productId);
+            network.forEach(listener -> listener.accept(productId));
+        }
+
+        @Override
+        public void subscribe(Consumer<UUID> listener) {
+            network.add(listener);
+        }
+    }
+}
@@ -10,15 +10,17 @@ import static org.mockito.Mockito.when;
 
 import com.challenge.api.model.dao.ProductDAO;
 import com.challenge.api.model.dto.Product;
-import com.challenge.api.repositories.ExtendedCrudRepository;
+import com.challenge.api.repositories.ProductsRepository;
+import com.challenge.api.services.impl.InProcessProductInvalidationBus;
 import com.challenge.api.services.impl.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.*;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
@@ -28,6 +30,7 @@ import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -36,25 +39,34 @@ import java.util.stream.Stream;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductServiceUnitTests {
-    private static final String PRODUCT_ID = "id_1";
+    private static final String PRODUCT_ID = "00000000-0000-7000-8000-000000000001";
+    private static final UUID PRODUCT_UUID = UUID.fromString(PRODUCT_ID);
     private static final String PRODUCT_NAME = "product_1";
     private static final String PRODUCT_DESCRIPTION = "product_description";
     private static final BigInteger PRODUCT_ON_HAND = new BigInteger("20");
     private static final BigDecimal PRODUCT_UNIT_PRICE = new BigDecimal("50.5");
     private static final Product PRODUCT_DTO = new Product(PRODUCT_ID, PRODUCT_NAME, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND.intValue(), PRODUCT_UNIT_PRICE);
-    private static final ProductDAO SINGLE_PRODUCT_REPOSITORY_RESPONSE = new ProductDAO(PRODUCT_ID, PRODUCT_NAME, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND, PRODUCT_UNIT_PRICE, true);
+    private static final ProductDAO SINGLE_PRODUCT_REPOSITORY_RESPONSE = new ProductDAO(PRODUCT_UUID, PRODUCT_NAME, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND, PRODUCT_UNIT_PRICE, true);
 
     @Mock
-    private ExtendedCrudRepository<ProductDAO, String> productRepository;
+    private ProductsRepository productRepository;
+
+    @Mock
+    private InventoryService inventoryService;
 
-    @InjectMocks
     private ProductService productService;
 
+    @BeforeEach
+    public void setup() {
+        productService = new ProductService(productRepository, new InProcessProductInvalidationBus(), inventoryService,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {1, 10, 100})
     public void findAllProductsSuccessfully(int pageSize) {
         PageRequest pageRequest = PageRequest.of(0, pageSize);
-        when(productRepository.findAll(any(Pageable.class))).thenReturn(databaseProducts(pageRequest));
+        when(productRepository.findAllAsDto(any(Pageable.class))).thenReturn(databaseProducts(pageRequest));
         Page<Product> result = productService.getAll(pageRequest);
         assertNotNull(result);
         assertEquals(pageSize, result.getTotalElements());
@@ -70,7 +82,7 @@ public class ProductServiceUnitTests {
 
     @Test
     public void findProductByIdSuccessfully() {
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findAsDtoById(PRODUCT_UUID)).thenReturn(Optional.of(PRODUCT_DTO));
         Product result = productService.getById(PRODUCT_ID);
 
         assertNotNull(result);
@@ -90,17 +102,17 @@ public class ProductServiceUnitTests {
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"id_1", "id_2", "id_3"})
+    @ValueSource(strings = {"00000000-0000-7000-8000-000000000001", "00000000-0000-7000-8000-000000000002", "00000000-0000-7000-8000-000000000003"})
     public void tryToFindProductByIdWithNonExistentId(String id) {
         String expectedMessage = "Product with id " + id + " not found";
-        when(productRepository.findById(id)).thenReturn(Optional.empty());
+        when(productRepository.findAsDtoById(UUID.fromString(id))).thenReturn(Optional.empty());
         Exception exception = assertThrows(EntityNotFoundException.class, () -> productService.getById(id));
         assertEquals(expectedMessage, exception.getMessage());
     }
 
     @Test
     public void createOneProductSuccessfully() throws Exception {
-        ProductDAO productDAO = new ProductDAO(UUID.randomUUID().toString(), PRODUCT_NAME, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND, PRODUCT_UNIT_PRICE, true);
+        ProductDAO productDAO = new ProductDAO(UUID.randomUUID(), PRODUCT_NAME, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND, PRODUCT_UNIT_PRICE, true);
         when(productRepository.saveAndFlush(any(ProductDAO.class))).thenReturn(productDAO);
         Product result = productService.create(PRODUCT_DTO);
 
@@ -174,9 +186,9 @@ public class ProductServiceUnitTests {
     public void updateOneProductSuccessfully() throws Exception {
         Product updatedProduct = new Product("new Id", "new Name", "new Description", 100, new BigDecimal("100"));
 
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
 
-        when(productRepository.saveAndFlush(any(ProductDAO.class))).thenReturn(new ProductDAO(PRODUCT_ID, updatedProduct.getName(),
+        when(productRepository.saveAndFlush(any(ProductDAO.class))).thenReturn(new ProductDAO(PRODUCT_UUID, updatedProduct.getName(),
                 updatedProduct.getDescription(), new BigInteger(String.valueOf(updatedProduct.getOnHand())), updatedProduct.getUnitPrice(), true));
 
         Product result = productService.update(PRODUCT_ID, updatedProduct);
@@ -200,7 +212,7 @@ public class ProductServiceUnitTests {
     public void tryToUpdateNonExistentProduct() {
         String expectedMessage = "Product with id " + PRODUCT_ID + " not found";
 
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.empty());
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(EntityNotFoundException.class, () -> productService.update(PRODUCT_ID, PRODUCT_DTO));
         assertEquals(expectedMessage, exception.getMessage());
@@ -211,7 +223,7 @@ public class ProductServiceUnitTests {
     public void tryToUpdateProductWithInvalidName(String expectedMessage, String invalidName) {
         Product product = new Product(null, invalidName, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND.intValue(), PRODUCT_UNIT_PRICE);
 
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
         when(productRepository.saveAndFlush(any(ProductDAO.class)))
                 .thenThrow(new ConstraintViolationException(expectedMessage, null, null));
 
@@ -224,7 +236,7 @@ public class ProductServiceUnitTests {
     public void tryToUpdateProductWithNullOrEmptyDescription(String expectedMessage, String invalidDescription) {
         Product product = new Product(null, PRODUCT_NAME, invalidDescription, PRODUCT_ON_HAND.intValue(), PRODUCT_UNIT_PRICE);
 
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
         when(productRepository.saveAndFlush(any(ProductDAO.class)))
                 .thenThrow(new ConstraintViolationException(expectedMessage, null, null));
 
@@ -237,7 +249,7 @@ public class ProductServiceUnitTests {
     public void tryToUpdateProductWithInvalidOnHand(String expectedMessage, BigInteger invalidOnHand) {
         Product product = new Product(null, PRODUCT_NAME, PRODUCT_DESCRIPTION, invalidOnHand == null ? null : invalidOnHand.intValue(), PRODUCT_UNIT_PRICE);
 
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
         when(productRepository.saveAndFlush(any(ProductDAO.class)))
                 .thenThrow(new ConstraintViolationException(expectedMessage, null, null));
 
@@ -250,7 +262,7 @@ public class ProductServiceUnitTests {
     public void tryToUpdateProductWithInvalidUnitPrice(String expectedMessage, BigDecimal invalidUnitPrice) {
         Product product = new Product(null, PRODUCT_NAME, PRODUCT_DESCRIPTION, PRODUCT_ON_HAND.intValue(), invalidUnitPrice);
 
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
         when(productRepository.saveAndFlush(any(ProductDAO.class)))
                 .thenThrow(new ConstraintViolationException(expectedMessage, null, null));
 
@@ -260,9 +272,9 @@ public class ProductServiceUnitTests {
 
     @Test
     public void deleteOneProductSuccessfully() {
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.of(SINGLE_PRODUCT_REPOSITORY_RESPONSE));
         productService.delete(PRODUCT_ID);
-        verify(productRepository).softDeleteById(PRODUCT_ID);
+        verify(productRepository).softDeleteById(PRODUCT_UUID);
     }
 
     @ParameterizedTest
@@ -276,7 +288,7 @@ public class ProductServiceUnitTests {
     @Test
     public void tryToDeleteNonExistentProduct() {
         String expectedMessage = "Product with id " + PRODUCT_ID + " not found";
-        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.empty());
+        when(productRepository.findById(PRODUCT_UUID)).thenReturn(Optional.empty());
         Exception exception = assertThrows(EntityNotFoundException.class, () -> productService.delete(PRODUCT_ID));
         assertEquals(expectedMessage, exception.getMessage());
     }
@@ -329,12 +341,12 @@ public class ProductServiceUnitTests {
         );
     }
 
-    private static Page<ProductDAO> databaseProducts(PageRequest pageRequest) {
-        List<ProductDAO> products = new ArrayList<>();
+    private static Page<Product> databaseProducts(PageRequest pageRequest) {
+        List<Product> products = new ArrayList<>();
 
         for (int i = 0; i < pageRequest.getPageSize(); i++) {
-            products.add(new ProductDAO("id_" + i, "product_" + i,
-                    "product_description_" + i, new BigInteger("20"), new BigDecimal("50.5"), true));
+            products.add(new Product("id_" + i, "product_" + i,
+                    "product_description_" + i, 20, new BigDecimal("50.5")));
         }
 
         return new PageImpl<>(products, pageRequest, products.size());
@@ -0,0 +1,114 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.model.dto.Product;
+import com.challenge.api.utils.MapperUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+public class ReadPathBenchmarkTest extends IntegrationTestsBase {
+    private static final int ORDERS = 50;
+    private static final int ITEMS_PER_ORDER = 10;
+    private static final int WARMUP = 20;
+    private static final int RUNS = 20;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    @Qualifier("ordersService")
+    private CrudService<OrderRequest, OrderResponse, String> ordersService;
+
+    @Autowired
+    @Qualifier("productsService")
+    private CrudService<Product, Product, String> productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void projectionsAllocateLessThanEntities() {
+        IntStream.range(0, ORDERS).forEach(i -> {
+            OrderDAO order = new OrderDAO(null, "Reader " + i, LocalDateTime.now(),
+                    BigDecimal.valueOf(ITEMS_PER_ORDER * 10L), true, new ArrayList<>());
+            IntStream.range(0, ITEMS_PER_ORDER)
+                    .forEach(j -> order.getItems().add(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.TEN,
+                            true, new ProductDAO(seededProductId(1 + j % 5)), order)));
+            ordersRepository.save(order);
+        });
+
+        PageRequest page = PageRequest.of(0, ORDERS, Sort.by("id"));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Supplier<List<OrderResponse>> orderEntities = () -> transaction.execute(status ->
+                ordersRepository.findAll(page).map(MapperUtils::map).getContent());
+        Supplier<List<OrderResponse>> orderProjections = () -> ordersService.getAll(page).getContent();
+        Supplier<List<Product>> productEntities = () -> transaction.execute(status ->
+                productsRepository.findAll(page).map(MapperUtils::map).getContent());
+        Supplier<List<Product>> productProjections = () -> productService.getAll(page).getContent();
+
+        // Both paths return the same responses, items of an order in no particular order
+        assertEquals(unordered(orderEntities.get()), unordered(orderProjections.get()));
+        assertEquals(productEntities.get(), productProjections.get());
+
+        System.out.printf("%-10s %-12s %14s %12s%n", "resource", "path", "bytes/request", "latency(ms)");
+        long orderEntityBytes = measure("orders", "entities", orderEntities);
+        long orderProjectionBytes = measure("orders", "projections", orderProjections);
+        long productEntityBytes = measure("products", "entities", productEntities);
+        long productProjectionBytes = measure("products", "projections", productProjections);
+
+        assertTrue(orderProjectionBytes < orderEntityBytes,
+                "Order projections allocated " + orderProjectionBytes + " bytes, entities " + orderEntityBytes);
+        assertTrue(productProjectionBytes < productEntityBytes,
+                "Product projections allocated " + productProjectionBytes + " bytes, entities " + productEntityBytes);
+    }
+
+    private static List<List<Object>> unordered(List<OrderResponse> orders) {
+        return orders.stream()
+                .map(order -> List.of(order.getId(), order.getCustomerName(), order.getTotal(), Set.copyOf(order.getItems())))
+                .toList();
+    }
+
+    private long measure(String resource, String path, Supplier<?> read) {
+        for (int run = 0; run < WARMUP; run++) {
+            read.get();
+        }
+
+        long bestBytes = Long.MAX_VALUE;
+        long bestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            read.get();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            bestBytes = Math.min(bestBytes, THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        }
+
+        System.out.printf("%-10s %-12s %14d %12.2f%n", resource, path, bestBytes, bestNanos / 1_000_000.0);
+        return bestBytes;
+    }
+}
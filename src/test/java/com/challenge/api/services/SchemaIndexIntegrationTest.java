@@ -0,0 +1,106 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.controller.RecordingStatementInspector;
+import com.challenge.api.repositories.IdempotencyKeysRepository;
+import com.challenge.api.repositories.ReservationsRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs each repository query, captures the SQL Hibernate generates for it and has H2 explain it against the migrated
+// schema. The PostgreSQL migrations, partial indexes included, are not exercised here
+public class SchemaIndexIntegrationTest extends IntegrationTestsBase {
+    private static final UUID ID = UUID.fromString("00000000-0000-7000-8000-000000000001");
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Autowired
+    private IdempotencyKeysRepository idempotencyKeysRepository;
+
+    @Autowired
+    private ReservationsRepository reservationsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @ParameterizedTest(name = "{0} uses {3}")
+    @MethodSource("repositoryQueries")
+    public void repositoryQueriesUseTheMigratedIndexes(String query, Consumer<SchemaIndexIntegrationTest> call,
+                                                       String statement, String index, Object[] parameters) {
+        // Writes are rolled back, only their statements are of interest
+        List<String> sql = RecordingStatementInspector.capture(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    call.accept(this);
+                    status.setRollbackOnly();
+                }));
+        List<String> matching = sql.stream().filter(candidate -> candidate.contains(statement)).toList();
+        assertEquals(1, matching.size(), query + " statements: " + sql);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + matching.getFirst(), String.class, parameters);
+
+        assertTrue(plan.toUpperCase().contains("PUBLIC." + index.toUpperCase()), query + " plan:\n" + plan);
+    }
+
+    private static Stream<Arguments> repositoryQueries() {
+        return Stream.of(
+                query("OrderItemsRepository.sumActiveTotalByOrderId",
+                        test -> test.orderItemsRepository.sumActiveTotalByOrderId(ID),
+                        "sum(", "idx_order_items_order_id", ID),
+                query("OrderItemsRepository.sumActiveQuantitiesByProduct",
+                        test -> test.orderItemsRepository.sumActiveQuantitiesByProduct(ID),
+                        "sum(", "idx_order_items_order_id", ID),
+                query("OrderItemsRepository.findAllByOrderIdAndActiveTrue",
+                        test -> test.orderItemsRepository.findAllByOrderIdAndActiveTrue(ID),
+                        "select", "idx_order_items_order_id", ID),
+                query("ProductsRepository.findUnreferencedInactiveIdsBetween",
+                        test -> test.productsRepository.findUnreferencedInactiveIdsBetween(ID, ID, NOW, Limit.of(20)),
+                        "select", "idx_order_items_product_id", ID, ID, NOW, 20),
+                query("OrdersRepository.findActiveIdsAfter",
+                        test -> test.ordersRepository.findActiveIdsAfter(ID, Limit.of(20)),
+                        "select", "idx_orders_active_id", ID, 20),
+                // A page past the end, so the count runs
+                query("OrdersRepository.findAllIds count",
+                        test -> test.ordersRepository.findAllIds(PageRequest.of(1_000_000, 1)),
+                        "count(", "idx_orders_active_id"),
+                query("OrdersRepository.findInactiveIdsBetween",
+                        test -> test.ordersRepository.findInactiveIdsBetween(ID, ID, NOW, Limit.of(20)),
+                        "select", "idx_orders_active_id", ID, ID, NOW, 20),
+                query("ProductsRepository.findActiveAsDtoAfter",
+                        test -> test.productsRepository.findActiveAsDtoAfter(ID, Limit.of(20)),
+                        "select", "idx_products_active_id", ID, 20),
+                query("OrderItemsRepository.findActiveAsDtoAfter",
+                        test -> test.orderItemsRepository.findActiveAsDtoAfter(ID, Limit.of(20)),
+                        "select", "idx_order_items_active_id", ID, 20),
+                query("IdempotencyKeysRepository.deleteCreatedBefore",
+                        test -> test.idempotencyKeysRepository.deleteCreatedBefore(NOW),
+                        "delete", "idx_idempotency_keys_created_at", NOW),
+                query("ReservationsRepository.findIdsExpiredBefore",
+                        test -> test.reservationsRepository.findIdsExpiredBefore(NOW, Limit.of(20)),
+                        "select", "idx_reservations_expires_at", NOW, 20)
+        );
+    }
+
+    // The parameters are bound to the captured statement in the order of its placeholders
+    private static Arguments query(String query, Consumer<SchemaIndexIntegrationTest> call, String statement,
+                                   String index, Object... parameters) {
+        return Arguments.of(query, call, statement, index, parameters);
+    }
+}
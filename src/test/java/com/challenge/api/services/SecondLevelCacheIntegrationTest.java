@@ -0,0 +1,175 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.utils.MapperUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SecondLevelCacheIntegrationTest extends IntegrationTestsBase {
+    private static final int ITEMS = 20;
+    private static final int READS = 20;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("ordersService")
+    private CrudService<OrderRequest, OrderResponse, String> ordersService;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    public void setup() {
+        transaction = new TransactionTemplate(transactionManager);
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void orderItemsStayCachedWhileTheirProductsAreReserved() {
+        UUID orderId = order(IntStream.range(0, ITEMS)
+                .mapToObj(i -> new ProductDAO(seededProductId(1 + i % 5)))
+                .toArray(ProductDAO[]::new));
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        long warmStatements = 0;
+        for (int read = 0; read < READS; read++) {
+            // A reservation and its release between reads, as on a live node
+            UUID productId = seededProductId(1 + read % 5);
+            transaction.executeWithoutResult(status -> {
+                productsRepository.reserveStock(productId, BigInteger.ONE);
+                productsRepository.releaseStock(productId, BigInteger.ONE);
+            });
+
+            long before = statistics.getPrepareStatementCount();
+            OrderResponse response = transaction.execute(status ->
+                    MapperUtils.map(ordersRepository.findById(orderId).orElseThrow()));
+            warmStatements = statistics.getPrepareStatementCount() - before;
+            assertEquals(ITEMS, response.getItems().size());
+        }
+
+        long hits = statistics.getSecondLevelCacheHitCount();
+        long misses = statistics.getSecondLevelCacheMissCount();
+        long collectionHits = statistics.getCollectionStatistics(OrderDAO.class.getName() + ".items").getCacheHitCount();
+        statistics.setStatisticsEnabled(false);
+
+        System.out.printf("second level cache hits %d, misses %d, ratio %.3f%n", hits, misses, (double) hits / (hits + misses));
+        assertEquals(READS - 1, collectionHits, "Every read after the first finds the item ids cached");
+        assertEquals(2, warmStatements, "A warm read selects the order row and its products");
+        assertTrue((double) hits / (hits + misses) >= 0.9, "Hit ratio " + hits + "/" + (hits + misses));
+    }
+
+    @Test
+    public void deletingAnOrderEvictsOnlyItsOwnItems() throws Exception {
+        UUID orderId = order(IntStream.range(0, ITEMS)
+                .mapToObj(i -> new ProductDAO(seededProductId(1 + i % 5)))
+                .toArray(ProductDAO[]::new));
+        String productId = productsRepository.save(new ProductDAO(null, "Deleted orders", "Product of deleted orders",
+                BigInteger.valueOf(READS), BigDecimal.TEN, true)).getId().toString();
+
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        CollectionStatistics items = statistics.getCollectionStatistics(OrderDAO.class.getName() + ".items");
+        long warmStatements = 0;
+        long collectionHits = 0;
+        for (int read = 0; read < READS; read++) {
+            // Another order is created, read into the cache and deleted between reads
+            OrderRequest request = new OrderRequest();
+            request.setCustomerName("Customer 2");
+            request.setItems(List.of(new OrderItemRequest(null, productId, 1)));
+            UUID deletedId = UUID.fromString(ordersService.create(request).getId());
+            UUID deletedItemId = transaction.execute(status ->
+                    ordersRepository.findById(deletedId).orElseThrow().getItems().getFirst().getId());
+            ordersService.delete(deletedId.toString());
+
+            assertFalse(cachedItem(deletedItemId).isActive(), "The deleted item is not served from the cache as active");
+
+            long before = statistics.getPrepareStatementCount();
+            long hitsBefore = items.getCacheHitCount();
+            OrderResponse response = transaction.execute(status ->
+                    MapperUtils.map(ordersRepository.findById(orderId).orElseThrow()));
+            warmStatements = statistics.getPrepareStatementCount() - before;
+            collectionHits += items.getCacheHitCount() - hitsBefore;
+            assertEquals(ITEMS, response.getItems().size());
+        }
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(READS - 1, collectionHits, "Every read after the first finds the item ids cached");
+        assertEquals(2, warmStatements, "A warm read selects the order row and its products");
+    }
+
+    @Test
+    public void softDeletedProductIsSeenByTheNextRead() {
+        UUID productId = productsRepository.save(new ProductDAO(null, "Deleted", "Deleted product",
+                BigInteger.TEN, BigDecimal.TEN, true)).getId();
+        UUID orderId = order(new ProductDAO(productId));
+
+        assertTrue(firstProductOf(orderId).isActive());
+        assertFalse(entityManagerFactory.getCache().contains(ProductDAO.class, productId));
+
+        transaction.executeWithoutResult(status -> productsRepository.softDeleteById(productId));
+
+        assertFalse(firstProductOf(orderId).isActive());
+    }
+
+    // Looked up by id, so the item comes from the second-level cache when it is there
+    private OrderItemDAO cachedItem(UUID id) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(OrderItemDAO.class, id);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private ProductDAO firstProductOf(UUID orderId) {
+        return transaction.execute(status -> {
+            ProductDAO product = ordersRepository.findById(orderId).orElseThrow().getItems().getFirst().getProduct();
+            // Initialize the proxy while the session is open
+            product.isActive();
+            return product;
+        });
+    }
+
+    private UUID order(ProductDAO... products) {
+        OrderDAO order = new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.valueOf(products.length * 10L), true, new ArrayList<>());
+        for (ProductDAO product : products) {
+            order.getItems().add(new OrderItemDAO(null, BigInteger.ONE, BigDecimal.TEN, true, product, order));
+        }
+        return ordersRepository.save(order).getId();
+    }
+}
@@ -0,0 +1,133 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dao.ProductStockBucketDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.repositories.ProductStockBucketsRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+public class StockBucketBenchmarkTest extends IntegrationTestsBase {
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 40;
+    private static final int STOCK = 500;
+
+    private final AtomicInteger deadlocks = new AtomicInteger();
+
+    @Autowired
+    @Qualifier("orderItemsService")
+    private CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+
+    @Autowired
+    @Qualifier("stockBucketService")
+    private StockBucketService stockBucketService;
+
+    @Autowired
+    private ProductStockBucketsRepository bucketsRepository;
+
+    @Test
+    public void splitProductsSellTheirWholeStockWithoutOverselling() throws Exception {
+        System.out.printf("%-8s %8s %12s %10s%n", "buckets", "sold", "attempts/s", "deadlocks");
+        Map<Integer, Double> throughput = new TreeMap<>();
+        for (int buckets : new int[]{1, 4, 16}) {
+            UUID productId = product();
+            stockBucketService.split(productId.toString(), buckets);
+
+            throughput.put(buckets, measure(buckets, productId));
+
+            ProductDAO product = productsRepository.findById(productId).orElseThrow();
+            BigInteger inBuckets = bucketsRepository.findAll().stream()
+                    .filter(bucket -> bucket.getId().getProductId().equals(productId))
+                    .map(ProductStockBucketDAO::getOnHand)
+                    .reduce(BigInteger.ZERO, BigInteger::add);
+            assertEquals(BigInteger.ZERO, product.getOnHand().add(inBuckets), "Nothing is left on hand");
+        }
+
+        // The scaling the buckets are for, only checked in the benchmarks profile where timings are what is measured
+        assertTrue(throughput.get(16) > throughput.get(1), "Reservations per second by bucket count: " + throughput);
+    }
+
+    // Every thread adds items of one unit to its own order, holding the lock of the units it reserved until the item
+    // is saved, until it runs out of attempts
+    private double measure(int buckets, UUID productId) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            String orderId = order();
+            futures.add(executor.submit(() -> {
+                start.await();
+                int reserved = 0;
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (buy(orderId, productId)) {
+                        reserved++;
+                    }
+                }
+                return reserved;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int sold = 0;
+        for (Future<Integer> future : futures) {
+            sold += future.get();
+        }
+        double perSecond = THREADS * ATTEMPTS_PER_THREAD / ((System.nanoTime() - begin) / 1_000_000_000.0);
+        executor.shutdown();
+
+        System.out.printf("%-8d %8d %12.0f %10d%n", buckets, sold, perSecond, deadlocks.getAndSet(0));
+        assertEquals(STOCK, sold, "Exactly the units in stock are sold");
+        return perSecond;
+    }
+
+    // H2 waits on the buckets other reservations hold, so deadlock victims are rolled back and tried again
+    private boolean buy(String orderId, UUID productId) throws Exception {
+        while (true) {
+            try {
+                orderItemsService.create(new OrderItemRequest(orderId, productId.toString(), 1));
+                return true;
+            } catch (OutOfStockException e) {
+                return false;
+            } catch (PessimisticLockingFailureException e) {
+                deadlocks.incrementAndGet();
+            }
+        }
+    }
+
+    private UUID product() {
+        return productsRepository.save(new ProductDAO(null, "Hot", "Hot product",
+                BigInteger.valueOf(STOCK), BigDecimal.TEN, true)).getId();
+    }
+
+    private String order() {
+        return ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+    }
+}
@@ -0,0 +1,179 @@
+package com.challenge.api.services;
+
+import com.challenge.api.controller.IntegrationTestsBase;
+import com.challenge.api.exceptions.OutOfStockException;
+import com.challenge.api.model.dao.OrderDAO;
+import com.challenge.api.model.dao.OrderItemDAO;
+import com.challenge.api.model.dao.ProductDAO;
+import com.challenge.api.model.dto.OrderItemRequest;
+import com.challenge.api.model.dto.OrderItemResponse;
+import com.challenge.api.model.dto.OrderRequest;
+import com.challenge.api.model.dto.OrderResponse;
+import com.challenge.api.model.dto.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class StockReservationIntegrationTest extends IntegrationTestsBase {
+    private static final int BUYERS = 500;
+    private static final int STOCK = 100;
+    private static final int CARTS = 300;
+    private static final int CART_PRODUCTS = 6;
+
+    @Autowired
+    @Qualifier("orderItemsService")
+    private CrudService<OrderItemRequest, OrderItemResponse, String> orderItemsService;
+
+    @Autowired
+    @Qualifier("ordersService")
+    private CrudService<OrderRequest, OrderResponse, String> ordersService;
+
+    @Autowired
+    @Qualifier("productsService")
+    private CrudService<Product, Product, String> productService;
+
+    @Test
+    public void cachedProductFollowsStockChanges() throws Exception {
+        String productId = productsRepository.save(new ProductDAO(null, "Cached", "Cached product",
+                BigInteger.valueOf(STOCK), BigDecimal.TEN, true)).getId().toString();
+        String orderId = ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+
+        assertEquals(STOCK, productService.getById(productId).getOnHand());
+
+        String itemId = orderItemsService.create(new OrderItemRequest(orderId, productId, 3)).getId();
+        assertEquals(STOCK - 3, productService.getById(productId).getOnHand());
+
+        orderItemsService.update(itemId, new OrderItemRequest(orderId, productId, 5));
+        assertEquals(STOCK - 5, productService.getById(productId).getOnHand());
+
+        orderItemsService.delete(itemId);
+        assertEquals(STOCK, productService.getById(productId).getOnHand());
+    }
+
+    @Test
+    public void concurrentBuyersNeverOversellAProduct() throws Exception {
+        String productId = productsRepository.save(new ProductDAO(null, "Flash Sale", "Flash sale product",
+                BigInteger.valueOf(STOCK), BigDecimal.TEN, true)).getId().toString();
+        String orderId = ordersRepository.save(new OrderDAO(null, "Customer 1", LocalDateTime.now(),
+                BigDecimal.ZERO, true, new LinkedList<>())).getId().toString();
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < BUYERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderItemsService.create(new OrderItemRequest(orderId, productId, 1));
+                    sold.incrementAndGet();
+                } catch (OutOfStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                fail("Unexpected failure while buying the product", e);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(STOCK, sold.get(), "Every unit in stock is sold");
+        assertEquals(BUYERS - STOCK, rejected.get(), "Remaining buyers are rejected as out of stock");
+        assertEquals(BigInteger.ZERO, productsRepository.findById(UUID.fromString(productId)).orElseThrow().getOnHand(), "Stock never goes below zero");
+        assertEquals(STOCK, orderItemsRepository.findAll().stream()
+                .filter(item -> item.getProduct().getId().toString().equals(productId))
+                .count(), "One order item is created per unit sold");
+    }
+
+    @Test
+    public void overlappingCartsNeitherDeadlockNorOversell() throws Exception {
+        List<UUID> productIds = new ArrayList<>();
+        for (int i = 0; i < CART_PRODUCTS; i++) {
+            productIds.add(productsRepository.save(new ProductDAO(null, "Cart " + i, "Cart product",
+                    BigInteger.valueOf(STOCK), BigDecimal.TEN, true)).getId());
+        }
+
+        // Carts of 2 to 5 lines over the same few products in random order, some of them for the same product twice
+        Random random = new Random(25);
+        List<OrderRequest> carts = new ArrayList<>();
+        for (int i = 0; i < CARTS; i++) {
+            List<OrderItemRequest> lines = new ArrayList<>();
+            for (int line = random.nextInt(2, 6); line > 0; line--) {
+                lines.add(new OrderItemRequest(null, productIds.get(random.nextInt(CART_PRODUCTS)).toString(),
+                        random.nextInt(1, 4)));
+            }
+            OrderRequest cart = new OrderRequest();
+            cart.setCustomerName("Customer " + i);
+            cart.setItems(lines);
+            carts.add(cart);
+        }
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (OrderRequest cart : carts) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    ordersService.create(cart);
+                    created.incrementAndGet();
+                } catch (OutOfStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                fail("Orders sharing products deadlocked or timed out waiting on each other", e);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(CARTS, created.get() + rejected.get());
+        assertTrue(created.get() > 0 && rejected.get() > 0, "Carts both fit and ran out of stock");
+        for (UUID productId : productIds) {
+            BigInteger ordered = orderItemsRepository.findAll().stream()
+                    .filter(item -> item.isActive() && item.getProduct().getId().equals(productId))
+                    .map(OrderItemDAO::getQuantity)
+                    .reduce(BigInteger.ZERO, BigInteger::add);
+            ProductDAO product = productsRepository.findById(productId).orElseThrow();
+            assertEquals(BigInteger.valueOf(STOCK), product.getOnHand().add(ordered), "Units are either on hand or ordered");
+            assertEquals(ordered, product.getReservedUnits(), "Rejected carts left no units reserved");
+        }
+    }
+}
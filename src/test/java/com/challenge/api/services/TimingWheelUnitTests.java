@@ -0,0 +1,79 @@
+package com.challenge.api.services;
+
+import com.challenge.api.utils.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelUnitTests {
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    @Test
+    public void itemsExpireOnTheFirstTickAtOrAfterTheirDeadline() {
+        // 4 slots of 10ms: the first level spans 40ms, the second 160ms and the third 640ms
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 0);
+        wheel.add("first level", 25);
+        wheel.add("second level", 100);
+        wheel.add("third level", 500);
+        wheel.add("fourth level", 2_000);
+
+        assertEquals(List.of(), wheel.advance(29));
+        assertEquals(List.of("first level"), wheel.advance(30));
+        assertEquals(List.of(), wheel.advance(99));
+        assertEquals(List.of("second level"), wheel.advance(100));
+        assertEquals(List.of(), wheel.advance(499));
+        assertEquals(List.of("third level"), wheel.advance(500));
+        assertEquals(List.of(), wheel.advance(1_999));
+        assertEquals(List.of("fourth level"), wheel.advance(2_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void itemsAddedPastTheirDeadlineExpireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 1_000);
+        wheel.add("late", 500);
+        wheel.add("now", 1_000);
+
+        assertEquals(2, wheel.size());
+        assertEquals(List.of("late", "now"), wheel.advance(1_000));
+    }
+
+    @Test
+    public void everyItemExpiresOnceWhateverTheAdvanceSteps() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 8, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int item = 0; item < 1_000_000; item++) {
+            long deadline = random.nextLong(1, 3_600_000);
+            deadlines.put(item, deadline);
+            wheel.add(item, deadline);
+        }
+
+        long previous = 0;
+        for (long now = 0; now <= 3_600_000; now += random.nextLong(1, 20_000)) {
+            for (int item : wheel.advance(now)) {
+                long due = Math.ceilDiv(deadlines.remove(item), TICK.toMillis()) * TICK.toMillis();
+                assertTrue(due > previous && due <= now, "Item due at " + due + " expired at " + now);
+            }
+            previous = now;
+        }
+        wheel.advance(3_600_000).forEach(deadlines::remove);
+
+        assertEquals(Map.of(), deadlines);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void wheelRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(Duration.ZERO, 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(TICK, 1, 0));
+    }
+}
@@ -0,0 +1,69 @@
+package com.challenge.api.services;
+
+import com.challenge.api.utils.UuidUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UuidUtilsUnitTests {
+
+    @Test
+    public void generatedIdsAreTimeOrderedVersion7Uuids() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(UuidUtils.randomV7());
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(7, ids.get(i).version());
+            assertEquals(2, ids.get(i).variant());
+            // Ids generated later never sort before earlier milliseconds, so inserts append to the index
+            if (i > 0) {
+                assertTrue(timestamp(ids.get(i - 1)) <= timestamp(ids.get(i)), "Ids are time ordered");
+            }
+        }
+    }
+
+    @Test
+    public void smallestIdOfAMillisecondSortsBelowTheIdsGeneratedInIt() {
+        Instant now = Instant.now();
+        UUID min = UuidUtils.minV7(now);
+
+        assertTrue(UuidUtils.DATABASE_ORDER.compare(min, UuidUtils.randomV7()) < 0);
+        assertTrue(UuidUtils.DATABASE_ORDER.compare(UuidUtils.minV7(now.minusMillis(1)), min) < 0);
+    }
+
+    @Test
+    public void databaseOrderComparesBytesUnsigned() {
+        UUID low = UUID.fromString("7fffffff-ffff-4fff-bfff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-4000-8000-000000000000");
+
+        // Signed longs put the high one first
+        assertTrue(high.compareTo(low) < 0);
+        assertTrue(UuidUtils.DATABASE_ORDER.compare(low, high) < 0);
+        assertTrue(UuidUtils.DATABASE_ORDER.compare(
+                UUID.fromString("00000000-0000-4000-0000-000000000001"),
+                UUID.fromString("00000000-0000-4000-8000-000000000000")) < 0);
+    }
+
+    @Test
+    public void onlyUuidsAreParsed() {
+        UUID id = UuidUtils.randomV7();
+
+        assertEquals(Optional.of(id), UuidUtils.parse(id.toString()));
+        assertEquals(Optional.empty(), UuidUtils.parse("not an id"));
+        assertEquals(Optional.empty(), UuidUtils.parse(""));
+        assertEquals(Optional.empty(), UuidUtils.parse(null));
+    }
+
+    private static long timestamp(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+}
@@ -1,14 +0,0 @@
-INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
-VALUES ('id_1', 'Product 1', 'Product 1 Description', 10, 10.00, true);
-
-INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
-VALUES ('id_2', 'Product 2', 'Product 2 Description', 20, 20.00, true);
-
-INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
-VALUES ('id_3', 'Product 3', 'Product 3 Description', 30, 30.00, true);
-
-INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
-VALUES ('id_4', 'Product 4', 'Product 4 Description', 40, 40.00, true);
-
-INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
-VALUES ('id_5', 'Product 5', 'Product 5 Description', 50, 50.00, true);
\ No newline at end of file
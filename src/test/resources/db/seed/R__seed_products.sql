@@ -0,0 +1,14 @@
+INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
+VALUES ('00000000-0000-7000-8000-000000000001', 'Product 1', 'Product 1 Description', 10, 10.00, true);
+
+INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
+VALUES ('00000000-0000-7000-8000-000000000002', 'Product 2', 'Product 2 Description', 20, 20.00, true);
+
+INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
+VALUES ('00000000-0000-7000-8000-000000000003', 'Product 3', 'Product 3 Description', 30, 30.00, true);
+
+INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
+VALUES ('00000000-0000-7000-8000-000000000004', 'Product 4', 'Product 4 Description', 40, 40.00, true);
+
+INSERT INTO products (product_id, product_name, product_description, on_hand, unit_price, active)
+VALUES ('00000000-0000-7000-8000-000000000005', 'Product 5', 'Product 5 Description', 50, 50.00, true);
\ No newline at end of file